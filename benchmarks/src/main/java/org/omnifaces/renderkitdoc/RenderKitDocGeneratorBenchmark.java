@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures {@link RenderKitDocGenerator} end to end and per generation stage, on a synthetic faces-config model.
+ * <p>
+ * Run with <code>-prof gc</code> (the {@link #main(String[])} method adds it) to get the allocation rate per
+ * operation next to the timings. Every benchmark uses a fresh generator, so its list of touched files does not
+ * grow over the iterations, and writes into an empty directory, so it measures writing the pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderKitDocGeneratorBenchmark {
+
+    @Param({ "50", "500" })
+    private int renderers;
+
+    @Param({ "20" })
+    private int attributes;
+
+    @Param({ "200" })
+    private int descriptionSize;
+
+    private FacesConfigBean configBean;
+    private RenderKitModel model;
+
+    @Setup
+    public void setUp() {
+        configBean = SyntheticFacesConfig.create(renderers, attributes, descriptionSize);
+        model = new RenderKitModel(configBean, SyntheticFacesConfig.RENDER_KIT_ID);
+    }
+
+    /**
+     * An empty output directory per invocation, so every invocation writes all pages instead of comparing them
+     * with those of the previous invocation.
+     */
+    @State(Scope.Thread)
+    public static class OutputDirectory {
+
+        private File directory;
+
+        @Setup(Level.Invocation)
+        public void create() throws IOException {
+            directory = Files.createTempDirectory("renderkitdoc-benchmark").toFile();
+        }
+
+        @TearDown(Level.Invocation)
+        public void delete() throws IOException {
+            Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public Object generateHtmlDocs(OutputDirectory output) {
+        RenderKitDocGenerator generator = newGenerator(output);
+        generator.generateHtmlDocs(configBean);
+        return generator.getFilesTouched();
+    }
+
+    @Benchmark
+    public Object buildModel() {
+        return new RenderKitModel(configBean, SyntheticFacesConfig.RENDER_KIT_ID);
+    }
+
+    @Benchmark
+    public Object generateAllRenderersFrame(OutputDirectory output) throws Exception {
+        RenderKitDocGenerator generator = newPreparedGenerator(output);
+        generator.generateAllRenderersFrame();
+        return generator.getFilesTouched();
+    }
+
+    @Benchmark
+    public Object generateRenderKitSummary(OutputDirectory output) throws Exception {
+        RenderKitDocGenerator generator = newPreparedGenerator(output);
+        generator.generateRenderKitSummary();
+        return generator.getFilesTouched();
+    }
+
+    @Benchmark
+    public Object generateRenderersDocs(OutputDirectory output) throws Exception {
+        RenderKitDocGenerator generator = newPreparedGenerator(output);
+        generator.generateRenderersDocs();
+        return generator.getFilesTouched();
+    }
+
+    private RenderKitDocGenerator newGenerator(OutputDirectory output) {
+        return new RenderKitDocGenerator(output.directory.getPath(), SyntheticFacesConfig.RENDER_KIT_ID);
+    }
+
+    private RenderKitDocGenerator newPreparedGenerator(OutputDirectory output) throws IOException {
+        RenderKitDocGenerator generator = newGenerator(output);
+        generator.prepare(model);
+        return generator;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(RenderKitDocGeneratorBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+
+}
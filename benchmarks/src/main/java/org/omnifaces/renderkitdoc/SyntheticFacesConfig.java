@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import org.omnifaces.facesconfigparser.digester.beans.AttributeBean;
+import org.omnifaces.facesconfigparser.digester.beans.DescriptionBean;
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+import org.omnifaces.facesconfigparser.digester.beans.RenderKitBean;
+import org.omnifaces.facesconfigparser.digester.beans.RendererBean;
+
+/**
+ * Builds faces-config models of a given size, shaped like the HTML_BASIC render kit of Mojarra: renderers spread
+ * over a handful of component families, with div wrapped descriptions and a few pass through and ignored attributes.
+ */
+final class SyntheticFacesConfig {
+
+    static final String RENDER_KIT_ID = RenderKitDocGenerator.DEFAULT_RENDER_KIT_ID;
+
+    private static final int COMPONENT_FAMILIES = 12;
+
+    private static final String[] WORDS = {
+        "render", "the", "component", "value", "as", "an", "HTML", "element", "with", "attributes", "of",
+        "<code>", "input", "</code>", "when", "is", "not", "null", "otherwise", "output", "nothing"
+    };
+
+    private SyntheticFacesConfig() {
+    }
+
+    static FacesConfigBean create(int renderers, int attributes, int descriptionSize) {
+        RenderKitBean renderKit = new RenderKitBean();
+        renderKit.setRenderKitId(RENDER_KIT_ID);
+        renderKit.addDescription(description(descriptionSize, 0));
+
+        for (int i = 0; i < renderers; i++) {
+            RendererBean renderer = new RendererBean();
+            renderer.setComponentFamily("javax.faces.Family" + (i % COMPONENT_FAMILIES));
+            renderer.setRendererType("javax.faces.Type" + i);
+            renderer.setRendererClass("com.example.Renderer" + i);
+            renderer.setRendersChildren(i % 3 == 0);
+            renderer.addDescription(description(descriptionSize, i));
+
+            for (int j = 0; j < attributes; j++) {
+                AttributeBean attribute = new AttributeBean();
+                attribute.setAttributeName("attribute" + j);
+                attribute.setAttributeClass(j % 4 == 0 ? "boolean" : "java.lang.String");
+                attribute.setPassThrough(j % 2 == 0);
+                attribute.setAttributeIgnoredForRenderer(j % 10 == 9);
+                if (j % 5 == 0) {
+                    attribute.setDefaultValue("false");
+                }
+                attribute.addDescription(description(descriptionSize, i + j));
+                renderer.addAttribute(attribute);
+            }
+
+            renderKit.addRenderer(renderer);
+        }
+
+        FacesConfigBean configBean = new FacesConfigBean();
+        configBean.addRenderKit(renderKit);
+        return configBean;
+    }
+
+    // A div wrapped text of about the given length, with a sentence break every dozen words
+    private static DescriptionBean description(int size, int seed) {
+        StringBuilder text = new StringBuilder(size + 32).append("<div class=\"changed_added_2_0\">");
+        for (int i = seed; text.length() < size; i++) {
+            text.append(WORDS[i % WORDS.length]).append(i % 12 == 11 ? ". " : " ");
+        }
+        text.append(".</div>");
+
+        DescriptionBean description = new DescriptionBean();
+        description.setLang("");
+        description.setDescription(text.toString());
+        return description;
+    }
+
+}
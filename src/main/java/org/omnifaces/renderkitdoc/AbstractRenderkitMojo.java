@@ -0,0 +1,527 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static org.omnifaces.facesconfigparser.FacesConfigParser.parseFacesConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Base of the goals generating render kit docs: the output and generation settings, the up-to-date check and
+ * the generation itself. Goals provide the faces-config input and the render kits to document.
+ */
+public abstract class AbstractRenderkitMojo extends AbstractMojo {
+
+    static final String PLUGIN_VERSION = String.valueOf(AbstractRenderkitMojo.class.getPackage().getImplementationVersion());
+
+    // Entry time of archives when the project has no project.build.outputTimestamp
+    private static final long DEFAULT_ARCHIVE_TIMESTAMP = OffsetDateTime.parse("1980-02-01T00:00:00Z").toInstant().toEpochMilli();
+
+    @Component
+    private BuildContext buildContext;
+
+    @Component
+    private MavenProjectHelper projectHelper;
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Parameter(property = "project.build.directory")
+    private File outputDirectory;
+
+    /**
+     * Regenerate the docs even when the inputs did not change since the previous build.
+     */
+    @Parameter(property = "force", defaultValue = "false")
+    private boolean force;
+
+    /**
+     * Number of threads used to generate the renderer pages. Values above 1 generate them concurrently.
+     */
+    @Parameter(property = "threads", defaultValue = "1")
+    private int threads;
+
+    /**
+     * Directory with page templates replacing the bundled ones: <code>allrenderers-frame.template</code>,
+     * <code>renderkit-summary.template</code>, <code>renderer.template</code> and, for several render kits or
+     * languages, <code>renderkit-index.template</code> and <code>language-index.template</code>. A template with
+     * a placeholder the generator does not write in its section fails the generation before any file is written.
+     */
+    @Parameter(property = "templateDirectory")
+    private File templateDirectory;
+
+    /**
+     * Cache parsed faces-config files in memory and on disk, so executions with an unchanged faces-config
+     * file and schemas skip parsing and validation.
+     */
+    @Parameter(property = "parseCache", defaultValue = "true")
+    private boolean parseCache;
+
+    /**
+     * Directory of the on-disk parse cache. Defaults to one directory shared by all modules of the reactor.
+     */
+    @Parameter(property = "parseCacheDirectory", defaultValue = "${session.executionRootDirectory}/target/renderkitdoc-cache")
+    private File parseCacheDirectory;
+
+    /**
+     * Maximum number of parsed faces-config files kept in the parse cache.
+     */
+    @Parameter(property = "parseCacheSize", defaultValue = "32")
+    private int parseCacheSize;
+
+    /**
+     * Write the timings and file counts of the generation as JSON to <code>renderkitdoc/metrics.json</code>
+     * in the output directory.
+     */
+    @Parameter(property = "metricsReport", defaultValue = "false")
+    private boolean metricsReport;
+
+    /**
+     * List only the component families in the renderers frame, and load their renderers on demand from a
+     * sharded search index, which also provides search by renderer type and attribute name. For large render
+     * kits this keeps the frame small.
+     */
+    @Parameter(property = "searchIndex", defaultValue = "false")
+    private boolean searchIndex;
+
+    /**
+     * Number of renderers after which the search index starts a new shard.
+     */
+    @Parameter(property = "searchIndexShardSize", defaultValue = "100")
+    private int searchIndexShardSize;
+
+    /**
+     * Write attribute tables that several renderers share once, as fragment pages the renderer pages link to,
+     * instead of into every renderer page. Only the attributes identical in other renderers are shared.
+     */
+    @Parameter(property = "sharedAttributeTables", defaultValue = "false")
+    private boolean sharedAttributeTables;
+
+    /**
+     * Languages to generate the docs in, each into its own subdirectory with an index page linking them. The
+     * docs of a language take the descriptions in that language, falling back to the descriptions without
+     * language. When not set, the descriptions without language are taken.
+     */
+    @Parameter(property = "languages")
+    private List<String> languages;
+
+    /**
+     * Generate the docs in all languages of the descriptions in the faces config file. When set,
+     * <code>languages</code> is ignored.
+     */
+    @Parameter(property = "allLanguages", defaultValue = "false")
+    private boolean allLanguages;
+
+    /**
+     * Write a gzip compressed <code>.gz</code> sibling next to every generated page, script and stylesheet, for
+     * web servers that serve pre-compressed files, such as nginx with <code>gzip_static</code>. Not used with
+     * <code>archive</code>.
+     */
+    @Parameter(property = "gzip", defaultValue = "false")
+    private boolean gzip;
+
+    /**
+     * Size in bytes below which files get no gzip compressed sibling.
+     */
+    @Parameter(property = "gzipThreshold", defaultValue = "1024")
+    private int gzipThreshold;
+
+    /**
+     * Formats to export the renderers and attributes in, next to the docs, for tools that need them as data:
+     * <code>JSON_LINES</code> for <code>renderers.jsonl</code> and <code>CSV</code> for
+     * <code>renderers.csv</code>.
+     */
+    @Parameter(property = "exportFormats")
+    private List<ExportFormat> exportFormats;
+
+    /**
+     * Write the pages with minimal markup and without indentation. The title script, the note above the
+     * attribute tables and the layout are moved into a shared <code>renderkitdoc.js</code> and
+     * <code>stylesheet.css</code>, which are loaded once for all pages. Templates in
+     * <code>templateDirectory</code> are used in compact mode as well.
+     */
+    @Parameter(property = "compact", defaultValue = "false")
+    private boolean compact;
+
+    /**
+     * Write the docs into a jar attached to the project, instead of into files below the output directory.
+     */
+    @Parameter(property = "archive", defaultValue = "false")
+    private boolean archive;
+
+    /**
+     * Classifier of the attached jar when <code>archive</code> is set.
+     */
+    @Parameter(property = "archiveClassifier", defaultValue = "renderkitdoc")
+    private String archiveClassifier;
+
+    /**
+     * Modification time of the entries in the jar, as ISO-8601 date or seconds since the epoch, so the jar is
+     * reproducible.
+     */
+    @Parameter(defaultValue = "${project.build.outputTimestamp}")
+    private String outputTimestamp;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        File docDirectory = getDocDirectory();
+        File fingerprintFile = new File(docDirectory, InputFingerprint.FINGERPRINT_FILE);
+        boolean outputExists = fingerprintFile.isFile() && (!archive || getArchiveFile().isFile());
+
+        // Also in incremental builds, since the build context does not report changes in the templates, the settings
+        // or the plugin
+        String fingerprint = computeFingerprint();
+        if (!force && outputExists && fingerprint.equals(InputFingerprint.read(fingerprintFile))) {
+            getLog().info("RenderKitDoc is up to date for " + describeInput());
+            attachArchive();
+            return;
+        }
+
+        getLog().info(
+            "Generating RenderKitDoc for " + describeInput());
+
+        getLog().info(
+            "Output " + (archive ? "archive: " + getArchiveFile() : "directory: " + docDirectory));
+
+        fingerprintFile.delete();
+
+        GenerationMetrics metrics = new GenerationMetrics();
+        long start = System.nanoTime();
+
+        // Parses the faces-config.xml input into a set of tree of Java classes, unless it is streamed
+        File streamingInput = getStreamingInput();
+        FacesConfigBean facesConfigRoot = null;
+        if (streamingInput == null) {
+            facesConfigRoot = parseInput();
+            metrics.addTime(GenerationMetrics.PARSE, start);
+        }
+
+        // Generates HTML docs from the parsed faces config file
+        List<File> filesTouched;
+        if (archive) {
+            filesTouched = generateArchive(facesConfigRoot, streamingInput, metrics);
+        } else {
+            filesTouched = generate(facesConfigRoot, streamingInput, metrics, null);
+        }
+
+        for (File file : filesTouched) {
+            if (getLog().isDebugEnabled()) {
+                getLog().debug("Refreshing: " + file.toString());
+            }
+            buildContext.refresh(file);
+        }
+
+        metrics.addTime(GenerationMetrics.TOTAL, start);
+        getLog().info(metrics.toSummary());
+
+        if (metricsReport) {
+            File reportFile = new File(docDirectory, "metrics.json");
+            try {
+                metrics.writeJson(reportFile);
+                buildContext.refresh(reportFile);
+            } catch (IOException e) {
+                getLog().warn("Could not write RenderKitDoc metrics report: " + e.getMessage());
+            }
+        }
+
+        attachArchive();
+
+        try {
+            InputFingerprint.write(fingerprintFile, fingerprint);
+        } catch (IOException e) {
+            getLog().warn("Could not store RenderKitDoc fingerprint: " + e.getMessage());
+        }
+    }
+
+    private List<File> generate(FacesConfigBean facesConfigRoot, File streamingInput, GenerationMetrics metrics, DocArchive docArchive) {
+        if (streamingInput != null) {
+            RenderKitDocGenerator renderKitDocGenerator = newRenderKitDocGenerator(getDocDirectory(), metrics, docArchive);
+            renderKitDocGenerator.generateStreamingDocs(streamingInput);
+            return renderKitDocGenerator.getFilesTouched();
+        }
+
+        if (!allLanguages && (languages == null || languages.isEmpty())) {
+            return generate(facesConfigRoot, metrics, docArchive, getDocDirectory(), null, null, threads);
+        }
+
+        MultiLanguageDocGenerator multiLanguageDocGenerator =
+            new MultiLanguageDocGenerator(outputDirectory.toString(), allLanguages ? Collections.emptyList() : languages);
+        multiLanguageDocGenerator.setThreadCount(threads);
+        multiLanguageDocGenerator.setMetrics(metrics);
+        multiLanguageDocGenerator.setBuildContext(buildContext);
+        multiLanguageDocGenerator.setArchive(docArchive);
+        multiLanguageDocGenerator.setTemplateDirectory(templateDirectory);
+        multiLanguageDocGenerator.setCompact(compact);
+        multiLanguageDocGenerator.setGzip(gzip);
+        multiLanguageDocGenerator.setGzipThreshold(gzipThreshold);
+
+        multiLanguageDocGenerator.generateHtmlDocs(facesConfigRoot, (language, directory, languageThreads, indexes) ->
+            generate(facesConfigRoot, metrics, docArchive, directory, language, indexes, languageThreads));
+        return multiLanguageDocGenerator.getFilesTouched();
+    }
+
+    private List<File> generate(FacesConfigBean facesConfigRoot, GenerationMetrics metrics, DocArchive docArchive,
+            File baseDirectory, String language, Map<String, RenderKitModel.Index> indexes, int threadCount) {
+        if (getRenderKitIds() != null) {
+            MultiRenderKitDocGenerator multiRenderKitDocGenerator = newMultiRenderKitDocGenerator(baseDirectory, metrics, docArchive);
+            multiRenderKitDocGenerator.setLanguage(language);
+            multiRenderKitDocGenerator.setIndexes(indexes);
+            multiRenderKitDocGenerator.setThreadCount(threadCount);
+            multiRenderKitDocGenerator.generateHtmlDocs(facesConfigRoot);
+            return multiRenderKitDocGenerator.getFilesTouched();
+        } else {
+            RenderKitDocGenerator renderKitDocGenerator = newRenderKitDocGenerator(baseDirectory, metrics, docArchive);
+            renderKitDocGenerator.setLanguage(language);
+            renderKitDocGenerator.setIndexes(indexes);
+            renderKitDocGenerator.setThreadCount(threadCount);
+            renderKitDocGenerator.generateHtmlDocs(facesConfigRoot);
+            return renderKitDocGenerator.getFilesTouched();
+        }
+    }
+
+    /**
+     * Creates the generator of the render kits of {@link #getRenderKitIds()} into the given directory, with the
+     * generation settings.
+     */
+    MultiRenderKitDocGenerator newMultiRenderKitDocGenerator(File baseDirectory, GenerationMetrics metrics, DocArchive docArchive) {
+        MultiRenderKitDocGenerator multiRenderKitDocGenerator = MultiRenderKitDocGenerator.inDirectory(baseDirectory, getRenderKitIds());
+        multiRenderKitDocGenerator.setThreadCount(threads);
+        multiRenderKitDocGenerator.setTemplateDirectory(templateDirectory);
+        multiRenderKitDocGenerator.setMetrics(metrics);
+        multiRenderKitDocGenerator.setBuildContext(buildContext);
+        multiRenderKitDocGenerator.setArchive(docArchive);
+        multiRenderKitDocGenerator.setSearchIndex(searchIndex);
+        multiRenderKitDocGenerator.setSearchIndexShardSize(searchIndexShardSize);
+        multiRenderKitDocGenerator.setSharedAttributeTables(sharedAttributeTables);
+        multiRenderKitDocGenerator.setGzip(gzip);
+        multiRenderKitDocGenerator.setGzipThreshold(gzipThreshold);
+        multiRenderKitDocGenerator.setCompact(compact);
+        if (exportFormats != null) {
+            multiRenderKitDocGenerator.setExportFormats(exportFormats);
+        }
+        return multiRenderKitDocGenerator;
+    }
+
+    /**
+     * Creates the generator of the render kit of {@link #getRenderKitId()} into the given directory, with the
+     * generation settings.
+     */
+    RenderKitDocGenerator newRenderKitDocGenerator(File baseDirectory, GenerationMetrics metrics, DocArchive docArchive) {
+        RenderKitDocGenerator renderKitDocGenerator = RenderKitDocGenerator.inDirectory(baseDirectory, getRenderKitId());
+        renderKitDocGenerator.setThreadCount(threads);
+        renderKitDocGenerator.setTemplateDirectory(templateDirectory);
+        renderKitDocGenerator.setMetrics(metrics);
+        renderKitDocGenerator.setBuildContext(buildContext);
+        renderKitDocGenerator.setArchive(docArchive);
+        renderKitDocGenerator.setSearchIndex(searchIndex);
+        renderKitDocGenerator.setSearchIndexShardSize(searchIndexShardSize);
+        renderKitDocGenerator.setSharedAttributeTables(sharedAttributeTables);
+        renderKitDocGenerator.setGzip(gzip);
+        renderKitDocGenerator.setGzipThreshold(gzipThreshold);
+        renderKitDocGenerator.setCompact(compact);
+        if (exportFormats != null) {
+            renderKitDocGenerator.setExportFormats(exportFormats);
+        }
+        return renderKitDocGenerator;
+    }
+
+    private List<File> generateArchive(FacesConfigBean facesConfigRoot, File streamingInput, GenerationMetrics metrics) throws MojoExecutionException {
+        File archiveFile = getArchiveFile();
+        DocArchive docArchive;
+        try {
+            docArchive = new DocArchive(archiveFile, new File(outputDirectory, "renderkitdoc"), getArchiveTimestamp());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not create RenderKitDoc archive " + archiveFile + ": " + e.getMessage(), e);
+        }
+
+        try {
+            generate(facesConfigRoot, streamingInput, metrics, docArchive);
+
+            // Waits for the pages still being compressed
+            long start = System.nanoTime();
+            docArchive.close();
+            metrics.addTime(GenerationMetrics.ARCHIVE, start);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not write RenderKitDoc archive " + archiveFile + ": " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            docArchive.abort();
+            throw e;
+        }
+
+        return Collections.singletonList(archiveFile);
+    }
+
+    private File getArchiveFile() {
+        return new File(outputDirectory, project.getBuild().getFinalName() + "-" + archiveClassifier + ".jar");
+    }
+
+    private long getArchiveTimestamp() throws MojoExecutionException {
+        // Like the Maven archivers, a single character such as "-" disables the project timestamp
+        if (outputTimestamp == null || outputTimestamp.length() < 2) {
+            return DEFAULT_ARCHIVE_TIMESTAMP;
+        }
+
+        try {
+            if (outputTimestamp.chars().allMatch(Character::isDigit)) {
+                return Long.parseLong(outputTimestamp) * 1000;
+            }
+
+            return OffsetDateTime.parse(outputTimestamp).toInstant().toEpochMilli();
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new MojoExecutionException("Invalid outputTimestamp '" + outputTimestamp + "': " + e.getMessage(), e);
+        }
+    }
+
+    private void attachArchive() {
+        if (archive) {
+            projectHelper.attachArtifact(project, "jar", archiveClassifier, getArchiveFile());
+        }
+    }
+
+    /**
+     * Returns the faces-config file to stream the render kit from, or <code>null</code> to parse the input. Settings
+     * that need the whole parsed input fall back to parsing it, with a warning.
+     */
+    private File getStreamingInput() {
+        File streamingInput = getStreamingFacesConfig();
+        if (streamingInput == null) {
+            return null;
+        }
+
+        String unsupported = (getRenderKitIds() != null) ? "several render kits"
+            : (allLanguages || (languages != null && !languages.isEmpty())) ? "languages"
+            : searchIndex ? "searchIndex"
+            : sharedAttributeTables ? "sharedAttributeTables"
+            : null;
+
+        if (unsupported != null) {
+            getLog().warn("Streaming is not supported with " + unsupported + ", parsing the whole faces config file");
+            return null;
+        }
+
+        return streamingInput;
+    }
+
+    /**
+     * Returns the faces-config file to read the render kit of {@link #getRenderKitId()} from with a pull parser,
+     * writing every renderer page as soon as it is read, or <code>null</code> to parse the input first.
+     */
+    File getStreamingFacesConfig() {
+        return null;
+    }
+
+    /**
+     * Describes the faces-config input for the log, such as <code>faces config file: faces-config.xml</code>.
+     */
+    protected abstract String describeInput();
+
+    /**
+     * Adds the faces-config input and the settings that select the render kits to the fingerprint.
+     */
+    abstract void addInput(InputFingerprint fingerprint) throws IOException, MojoExecutionException;
+
+    /**
+     * Parses the faces-config input.
+     */
+    protected abstract FacesConfigBean parseInput() throws MojoExecutionException, MojoFailureException;
+
+    /**
+     * Returns the id of the render kit to generate when {@link #getRenderKitIds()} returns <code>null</code>.
+     */
+    protected abstract String getRenderKitId();
+
+    /**
+     * Returns the ids of the render kits to generate each into its own subdirectory, an empty list for all
+     * render kits, or <code>null</code> to generate only {@link #getRenderKitId()} directly in the output.
+     */
+    protected abstract List<String> getRenderKitIds();
+
+    protected BuildContext getBuildContext() {
+        return buildContext;
+    }
+
+    protected int getThreads() {
+        return threads;
+    }
+
+    File getDocDirectory() {
+        return new File(outputDirectory, "renderkitdoc");
+    }
+
+    File getTemplateDirectory() {
+        return templateDirectory;
+    }
+
+    /**
+     * Parses the given faces-config file, through the parse cache when it is enabled.
+     */
+    protected FacesConfigBean parse(String facesConfig, String schemaDirectory) throws MojoExecutionException {
+        if (!parseCache) {
+            return parseFacesConfig(facesConfig, schemaDirectory);
+        }
+
+        try {
+            return new FacesConfigCache(parseCacheDirectory, parseCacheSize, PLUGIN_VERSION).parse(facesConfig, schemaDirectory);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not parse faces config file " + facesConfig + ": " + e.getMessage(), e);
+        }
+    }
+
+    private String computeFingerprint() throws MojoExecutionException {
+        try {
+            InputFingerprint fingerprint = new InputFingerprint();
+            addInput(fingerprint);
+
+            fingerprint
+                .addDirectory(templateDirectory)
+                .addString(archive ? archiveClassifier + '@' + outputTimestamp : "<no archive>")
+                .addString(searchIndex ? "search index " + searchIndexShardSize : "<no search index>")
+                .addString(String.valueOf(sharedAttributeTables))
+                .addString(gzip ? "gzip " + gzipThreshold : "<no gzip>")
+                .addString(allLanguages ? "all languages" : String.valueOf(languages))
+                .addString(String.valueOf(exportFormats))
+                .addString(String.valueOf(compact))
+                .addString(metricsReport ? "metrics report" : "<no metrics report>")
+                .addString(System.getProperty("impl.version.number"))
+                .addString(PLUGIN_VERSION);
+
+            for (String resourceName : RenderKitDocGenerator.TEMPLATE_RESOURCES) {
+                fingerprint.addResource(resourceName);
+            }
+
+            return fingerprint.toHex();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not read RenderKitDoc input: " + e.getMessage(), e);
+        }
+    }
+
+}
\ No newline at end of file
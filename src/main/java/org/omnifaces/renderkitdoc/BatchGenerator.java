@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static org.omnifaces.facesconfigparser.FacesConfigParser.parseFacesConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+
+/**
+ * Generates the docs of a batch of faces-config files in one JVM, outside Maven, for publishing the docs of many
+ * component libraries at once.
+ * <p>
+ * The entries are processed by a pool of workers. The bundled resources and page templates are loaded once for
+ * all entries, and parsed faces-config files can be shared through a parse cache. A failing entry is reported in
+ * its result and does not stop the other entries.
+ * <p>
+ * From the command line, with the plugin and its dependencies on the class path:
+ * <pre>
+ * java org.omnifaces.renderkitdoc.BatchGenerator [--threads N] [--parse-cache DIR] manifest
+ * </pre>
+ * The manifest has one entry per line, with tab separated the faces-config file, the schema directory, the
+ * render kit id and the output directory. An empty or <code>-</code> schema directory means none and an empty or
+ * <code>-</code> render kit id means <code>HTML_BASIC</code>. Relative paths are relative to the directory of the
+ * manifest. Empty lines and lines starting with <code>#</code> are ignored. The command exits with 1 when any
+ * entry failed.
+ * <p>
+ * The docs of an entry are written into a <code>renderkitdoc</code> directory below its output directory, never
+ * into the output directory itself, so an output directory can be shared with other content. Only that
+ * <code>renderkitdoc</code> directory is cleaned, and only of the files a previous run generated there.
+ * <p>
+ * Every entry needs its own output directory. Entries sharing one would write the same index page, stylesheet
+ * and manifest, and each would delete the docs of the other as no longer generated, so they are rejected.
+ */
+public class BatchGenerator {
+
+    // Like the goals, but without loading the Maven API
+    private static final String PLUGIN_VERSION = String.valueOf(BatchGenerator.class.getPackage().getImplementationVersion());
+
+    private final List<Entry> entries;
+
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private File parseCacheDirectory;
+    private int parseCacheSize = 32;
+    private Consumer<RenderKitDocGenerator> generatorSettings = generator -> {};
+
+    // The parser resolves schemas through state shared by all parsers, so only files validated against the same
+    // schema directory are parsed at the same time
+    private final Object parseLock = new Object();
+    private String parsingSchemaDirectory;
+    private int parsing;
+
+    /**
+     * @throws IllegalArgumentException when two entries have the same output directory
+     */
+    public BatchGenerator(List<Entry> entries) {
+        Map<Path, Entry> outputDirectories = new HashMap<>();
+        for (Entry entry : entries) {
+            Entry other = outputDirectories.put(getOutputPath(entry), entry);
+            if (other != null) {
+                throw new IllegalArgumentException("Entries " + other.getFacesConfig() + " and " + entry.getFacesConfig()
+                    + " have the same output directory " + entry.getOutputDirectory());
+            }
+        }
+
+        this.entries = entries;
+    }
+
+    /**
+     * Sets the number of entries processed at the same time. Defaults to the number of processors.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Sets a directory to cache the parsed faces-config files in, also between runs. Without one every entry is
+     * parsed.
+     */
+    public void setParseCacheDirectory(File parseCacheDirectory) {
+        this.parseCacheDirectory = parseCacheDirectory;
+    }
+
+    /**
+     * Sets the maximum number of parsed faces-config files kept in the parse cache.
+     */
+    public void setParseCacheSize(int parseCacheSize) {
+        this.parseCacheSize = parseCacheSize;
+    }
+
+    /**
+     * Sets the settings applied to the generator of every entry, such as gzip siblings or export formats.
+     */
+    public void setGeneratorSettings(Consumer<RenderKitDocGenerator> generatorSettings) {
+        this.generatorSettings = generatorSettings;
+    }
+
+    /**
+     * Generates the docs of all entries.
+     *
+     * @return the results, in the order of the entries
+     */
+    public List<Result> generate() throws InterruptedException {
+        if (entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, entries.size())));
+        try {
+            List<Future<Result>> futures = new ArrayList<>(entries.size());
+            for (Entry entry : entries) {
+                futures.add(executor.submit(() -> generate(entry)));
+            }
+
+            List<Result> results = new ArrayList<>(entries.size());
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // Failures are caught per entry, so this is an error such as running out of memory
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result generate(Entry entry) {
+        GenerationMetrics metrics = new GenerationMetrics();
+        long start = System.nanoTime();
+
+        try {
+            FacesConfigBean configBean = parse(entry);
+            metrics.addTime(GenerationMetrics.PARSE, start);
+
+            RenderKitDocGenerator generator = new RenderKitDocGenerator(entry.getOutputDirectory().getPath(), entry.getRenderKitId());
+            generator.setMetrics(metrics);
+            generatorSettings.accept(generator);
+            generator.generateHtmlDocs(configBean);
+
+            metrics.addTime(GenerationMetrics.TOTAL, start);
+            return new Result(entry, metrics, generator.getFilesTouched(), null);
+        } catch (Exception e) {
+            metrics.addTime(GenerationMetrics.TOTAL, start);
+            return new Result(entry, metrics, Collections.emptyList(), e);
+        }
+    }
+
+    private FacesConfigBean parse(Entry entry) throws IOException, InterruptedException {
+        String schemaDirectory = String.valueOf(entry.getSchemaDirectory());
+
+        synchronized (parseLock) {
+            while (parsing > 0 && !schemaDirectory.equals(parsingSchemaDirectory)) {
+                parseLock.wait();
+            }
+            parsingSchemaDirectory = schemaDirectory;
+            parsing++;
+        }
+
+        try {
+            if (parseCacheDirectory == null) {
+                return parseFacesConfig(entry.getFacesConfig(), entry.getSchemaDirectory());
+            }
+
+            return new FacesConfigCache(parseCacheDirectory, parseCacheSize, PLUGIN_VERSION)
+                .parse(entry.getFacesConfig(), entry.getSchemaDirectory());
+        } finally {
+            synchronized (parseLock) {
+                parsing--;
+                parseLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Reads the entries of the given manifest.
+     *
+     * @throws IOException when the manifest cannot be read, has a line without four fields or has two lines with
+     * the same output directory
+     */
+    public static List<Entry> readManifest(File manifest) throws IOException {
+        File directory = manifest.getAbsoluteFile().getParentFile();
+        List<String> lines = Files.readAllLines(manifest.toPath());
+        List<Entry> entries = new ArrayList<>(lines.size());
+        Map<Path, Integer> outputDirectoryLines = new HashMap<>();
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 4) {
+                throw new IOException(manifest + ":" + (i + 1) + ": expected 4 tab separated fields, but got " + fields.length);
+            }
+
+            String schemaDirectory = getField(fields[1]);
+            String renderKitId = getField(fields[2]);
+
+            Entry entry = new Entry(
+                resolve(directory, fields[0].trim()).getPath(),
+                (schemaDirectory == null) ? null : resolve(directory, schemaDirectory).getPath(),
+                (renderKitId == null) ? RenderKitDocGenerator.DEFAULT_RENDER_KIT_ID : renderKitId,
+                resolve(directory, fields[3].trim()));
+
+            Integer otherLine = outputDirectoryLines.put(getOutputPath(entry), i + 1);
+            if (otherLine != null) {
+                throw new IOException(manifest + ":" + (i + 1) + ": output directory " + entry.getOutputDirectory()
+                    + " is already used at line " + otherLine);
+            }
+
+            entries.add(entry);
+        }
+
+        return entries;
+    }
+
+    private static Path getOutputPath(Entry entry) {
+        return entry.getOutputDirectory().getAbsoluteFile().toPath().normalize();
+    }
+
+    private static String getField(String field) {
+        String value = field.trim();
+        return (value.isEmpty() || "-".equals(value)) ? null : value;
+    }
+
+    private static File resolve(File directory, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(directory, path);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        File parseCacheDirectory = null;
+        File manifest = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                    threadCount = Integer.parseInt(args[++i]);
+                } else if ("--parse-cache".equals(args[i]) && i + 1 < args.length) {
+                    parseCacheDirectory = new File(args[++i]);
+                } else if (manifest == null && !args[i].startsWith("--")) {
+                    manifest = new File(args[i]);
+                } else {
+                    manifest = null;
+                    break;
+                }
+            }
+        } catch (NumberFormatException e) {
+            manifest = null;
+        }
+
+        if (manifest == null) {
+            System.err.println("Usage: java " + BatchGenerator.class.getName() + " [--threads N] [--parse-cache DIR] manifest");
+            System.err.println("The manifest lists per line, tab separated: faces-config file, schema directory, render kit id, output directory.");
+            System.err.println("The docs are written into OUTPUT/renderkitdoc, where files generated by a previous run and no longer");
+            System.err.println("generated are deleted. Other files are left alone.");
+            System.exit(2);
+        }
+
+        List<Entry> entries;
+        try {
+            entries = readManifest(manifest);
+        } catch (IOException e) {
+            System.err.println("Could not read manifest: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        BatchGenerator batchGenerator = new BatchGenerator(entries);
+        batchGenerator.setThreadCount(threadCount);
+        batchGenerator.setParseCacheDirectory(parseCacheDirectory);
+
+        long start = System.nanoTime();
+        int failures = 0;
+        for (Result result : batchGenerator.generate()) {
+            System.out.println(result.toSummary());
+            if (!result.isSuccessful()) {
+                failures++;
+            }
+        }
+
+        System.out.println("Generated " + (entries.size() - failures) + " of " + entries.size() + " entries, "
+            + failures + " failed, in " + ((System.nanoTime() - start) / 1_000_000) + " ms");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * A faces-config file and the render kit of it to generate the docs of.
+     */
+    public static final class Entry {
+
+        private final String facesConfig;
+        private final String schemaDirectory;
+        private final String renderKitId;
+        private final File outputDirectory;
+
+        /**
+         * @param schemaDirectory the directory with the schemas to validate against, or <code>null</code>
+         * @param outputDirectory the directory below which a <code>renderkitdoc</code> directory with the docs is
+         * created
+         */
+        public Entry(String facesConfig, String schemaDirectory, String renderKitId, File outputDirectory) {
+            this.facesConfig = facesConfig;
+            this.schemaDirectory = schemaDirectory;
+            this.renderKitId = renderKitId;
+            this.outputDirectory = outputDirectory;
+        }
+
+        public String getFacesConfig() {
+            return facesConfig;
+        }
+
+        public String getSchemaDirectory() {
+            return schemaDirectory;
+        }
+
+        public String getRenderKitId() {
+            return renderKitId;
+        }
+
+        public File getOutputDirectory() {
+            return outputDirectory;
+        }
+    }
+
+    /**
+     * The outcome of generating one entry.
+     */
+    public static final class Result {
+
+        private final Entry entry;
+        private final GenerationMetrics metrics;
+        private final List<File> filesTouched;
+        private final Exception failure;
+
+        Result(Entry entry, GenerationMetrics metrics, List<File> filesTouched, Exception failure) {
+            this.entry = entry;
+            this.metrics = metrics;
+            this.filesTouched = filesTouched;
+            this.failure = failure;
+        }
+
+        public Entry getEntry() {
+            return entry;
+        }
+
+        /**
+         * Returns the timings and file counts of the entry, also of a failed entry up to the failure.
+         */
+        public GenerationMetrics getMetrics() {
+            return metrics;
+        }
+
+        public List<File> getFilesTouched() {
+            return filesTouched;
+        }
+
+        /**
+         * Returns the failure of the entry, or <code>null</code> if it succeeded.
+         */
+        public Exception getFailure() {
+            return failure;
+        }
+
+        public boolean isSuccessful() {
+            return failure == null;
+        }
+
+        /**
+         * Summarizes the result in one line, such as for a log.
+         */
+        public String toSummary() {
+            String input = entry.getFacesConfig() + " [" + entry.getRenderKitId() + "]";
+            if (failure == null) {
+                return "OK     " + input + ": " + metrics.toSummary();
+            }
+
+            Throwable cause = (failure.getCause() != null) ? failure.getCause() : failure;
+            return "FAILED " + input + " after " + metrics.getPhaseMillis().get(GenerationMetrics.TOTAL) + " ms: " + cause;
+        }
+    }
+
+}
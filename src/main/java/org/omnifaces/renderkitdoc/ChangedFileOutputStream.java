@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Writes the content of a generated file to a temporary file next to it, which replaces the file when closed only
+ * if it differs from the content the file already has. Unchanged files keep their modification time, so they do
+ * not trigger downstream processing. The content is never held in memory, so the memory used does not depend on
+ * the size of the file.
+ * <p>
+ * Content that is already in memory, such as a bundled asset, is written with {@link #write(byte[], File,
+ * BuildContext, GenerationMetrics, Set, GzipSiblings)} instead, which compares it with the file directly and
+ * needs no temporary file.
+ */
+final class ChangedFileOutputStream extends FilterOutputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final File file;
+    private final Path temporaryFile;
+    private final BuildContext buildContext;
+    private final GenerationMetrics metrics;
+    private final Set<File> changedFiles;
+    private final GzipSiblings gzipSiblings;
+
+    private boolean closed;
+
+    /**
+     * @param file the file to write
+     * @param buildContext the build context to open the file with, or <code>null</code> to move the temporary file
+     * into place
+     * @param metrics the metrics to record the written or skipped file in
+     * @param changedFiles the set the file is added to when it is written
+     * @param gzipSiblings the compressor to hand the file to once it is closed, or <code>null</code>
+     */
+    ChangedFileOutputStream(File file, BuildContext buildContext, GenerationMetrics metrics, Set<File> changedFiles, GzipSiblings gzipSiblings)
+            throws IOException {
+        super(null);
+        this.file = file;
+        this.temporaryFile = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+        this.buildContext = buildContext;
+        this.metrics = metrics;
+        this.changedFiles = changedFiles;
+        this.gzipSiblings = gzipSiblings;
+
+        out = new BufferedOutputStream(Files.newOutputStream(temporaryFile), BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        boolean changed;
+        long size;
+
+        try {
+            out.close();
+
+            size = Files.size(temporaryFile);
+            changed = !hasSameContent(temporaryFile, file.toPath());
+
+            if (!changed) {
+                metrics.fileSkipped();
+            } else {
+                if (buildContext != null) {
+                    try (OutputStream target = buildContext.newFileOutputStream(file)) {
+                        Files.copy(temporaryFile, target);
+                    }
+                } else {
+                    Files.move(temporaryFile, file.toPath(), REPLACE_EXISTING);
+                }
+
+                metrics.fileWritten(size);
+                changedFiles.add(file);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+
+        if (gzipSiblings != null) {
+            gzipSiblings.compress(file, size, changed);
+        }
+    }
+
+    /**
+     * Writes the given content to the given file, unless the file already has that content, and records it like
+     * a closed stream does.
+     *
+     * @see #ChangedFileOutputStream(File, BuildContext, GenerationMetrics, Set, GzipSiblings)
+     */
+    static void write(byte[] bytes, File file, BuildContext buildContext, GenerationMetrics metrics, Set<File> changedFiles,
+            GzipSiblings gzipSiblings) throws IOException {
+        boolean changed = !hasSameContent(bytes, file.toPath());
+
+        if (!changed) {
+            metrics.fileSkipped();
+        } else {
+            try (OutputStream target = (buildContext != null) ? buildContext.newFileOutputStream(file) : Files.newOutputStream(file.toPath())) {
+                target.write(bytes);
+            }
+
+            metrics.fileWritten(bytes.length);
+            changedFiles.add(file);
+        }
+
+        if (gzipSiblings != null) {
+            gzipSiblings.compress(file, bytes.length, changed);
+        }
+    }
+
+    /**
+     * Discards the written content and leaves the file alone.
+     */
+    void abort() {
+        closed = true;
+
+        try {
+            out.close();
+        } catch (IOException e) {
+            // The temporary file is deleted anyway
+        }
+
+        temporaryFile.toFile().delete();
+    }
+
+    /**
+     * Returns whether the given files exist and have the same content, comparing them a buffer at a time.
+     */
+    static boolean hasSameContent(Path path, Path other) throws IOException {
+        if (!Files.isRegularFile(other) || Files.size(path) != Files.size(other)) {
+            return false;
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] otherBuffer = new byte[BUFFER_SIZE];
+
+        try (InputStream in = Files.newInputStream(path); InputStream otherIn = Files.newInputStream(other)) {
+            for (int length = readFully(in, buffer); length > 0; length = readFully(in, buffer)) {
+                if (readFully(otherIn, otherBuffer) != length) {
+                    return false;
+                }
+
+                for (int i = 0; i < length; i++) {
+                    if (buffer[i] != otherBuffer[i]) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns whether the given file exists and has the given content, reading it a buffer at a time.
+     */
+    static boolean hasSameContent(byte[] bytes, Path path) throws IOException {
+        if (!Files.isRegularFile(path) || Files.size(path) != bytes.length) {
+            return false;
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (InputStream in = Files.newInputStream(path)) {
+            for (int offset = 0; offset < bytes.length; offset += BUFFER_SIZE) {
+                int length = Math.min(BUFFER_SIZE, bytes.length - offset);
+                if (readFully(in, buffer) != length) {
+                    return false;
+                }
+
+                for (int i = 0; i < length; i++) {
+                    if (buffer[i] != bytes[offset + i]) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    // Fills the buffer unless the stream ends first, so both streams are compared in equal chunks
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+
+        return length;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+/**
+ * What the generated pages use of a description: its first sentence and the tag enclosing it.
+ * <p>
+ * A description is scanned once for all of them. Only the descriptions of renderers are analyzed; attribute
+ * descriptions are written as they are. Many renderers share the same text, so {@link RenderKitModel} memoizes
+ * the analyses per text while it is built.
+ */
+final class DescriptionAnalysis {
+
+    static final DescriptionAnalysis EMPTY = analyze("");
+
+    private final String firstSentence;
+    private final String enclosingTag;
+    private final String enclosingEndTag;
+
+    private DescriptionAnalysis(String firstSentence, String enclosingTag, String enclosingEndTag) {
+        this.firstSentence = firstSentence;
+        this.enclosingTag = enclosingTag;
+        this.enclosingEndTag = enclosingEndTag;
+    }
+
+    static DescriptionAnalysis analyze(String text) {
+        int period = -1;
+        int divStart = -1;
+        int divEnd = -1;
+        int spanStart = -1;
+        int spanEnd = -1;
+
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                if (period == -1) {
+                    period = i;
+                }
+            } else if (c == '<') {
+                if (divStart == -1 && text.startsWith("<div", i)) {
+                    divStart = i;
+                } else if (spanStart == -1 && text.startsWith("<span", i)) {
+                    spanStart = i;
+                }
+            } else if (c == '>') {
+                if (divStart != -1 && divEnd == -1) {
+                    divEnd = i;
+                }
+                if (spanStart != -1 && spanEnd == -1) {
+                    spanEnd = i;
+                }
+            }
+        }
+
+        // Without a period there is no first sentence
+        String firstSentence = (period == -1) ? "" : text.substring(0, period + 1);
+
+        // If there is a div and a span, take which ever comes first
+        boolean div = divEnd != -1;
+        boolean span = spanEnd != -1;
+        if (div && span) {
+            div = divStart < spanStart;
+            span = !div;
+        }
+
+        if (div) {
+            return new DescriptionAnalysis(firstSentence, text.substring(divStart, divEnd + 1), "</div>");
+        }
+
+        if (span) {
+            return new DescriptionAnalysis(firstSentence, text.substring(spanStart, spanEnd + 1), "</span>");
+        }
+
+        return new DescriptionAnalysis(firstSentence, null, null);
+    }
+
+    /**
+     * Returns the text up to and including the first period, or an empty string if it has no period.
+     */
+    String getFirstSentence() {
+        return firstSentence;
+    }
+
+    /**
+     * Returns the first <code>div</code> or <code>span</code> start tag, whichever comes first, or
+     * <code>null</code> if there is none.
+     */
+    String getEnclosingTag() {
+        return enclosingTag;
+    }
+
+    /**
+     * Returns the end tag matching {@link #getEnclosingTag()}, or <code>null</code> if there is none.
+     */
+    String getEnclosingEndTag() {
+        return enclosingEndTag;
+    }
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.TimeZone;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A jar file the docs are written into as entries, instead of as files below a directory.
+ * <p>
+ * An entry is reserved with {@link #newEntry(File)} and its content is buffered in memory until the returned
+ * stream is closed. A single background thread compresses and writes the entries in the order they were
+ * reserved, so the pages can be rendered concurrently while the archive stays reproducible: entries always have
+ * the same order and the same timestamp. The archive is written to a temporary file that only replaces the
+ * archive file when it is closed successfully.
+ * <p>
+ * Content collected over the whole generation, like an export, is kept in a temporary file and added with
+ * {@link #addEntry(File, Path)} once complete, so it does not hold back the entries reserved after it.
+ */
+public final class DocArchive implements Closeable {
+
+    private static final Entry END = new Entry(null);
+
+    private final File archiveFile;
+    private final File rootDirectory;
+    private final long entryTime;
+
+    private final File tempFile;
+    private final ZipOutputStream zip;
+    private final BlockingQueue<Entry> entries = new LinkedBlockingQueue<>();
+    private final ExecutorService executor;
+    private final Future<?> writer;
+
+    private boolean closed;
+
+    /**
+     * @param archiveFile the jar file to create
+     * @param rootDirectory the directory the docs would be generated in; entry names are relative to it
+     * @param timestamp the modification time of all entries, in milliseconds since the epoch
+     */
+    public DocArchive(File archiveFile, File rootDirectory, long timestamp) throws IOException {
+        this.archiveFile = archiveFile;
+        this.rootDirectory = rootDirectory;
+
+        // ZipEntry stores the time in local DOS fields; shift it so these hold the UTC time in every time zone
+        this.entryTime = timestamp - TimeZone.getDefault().getOffset(timestamp);
+
+        archiveFile.getAbsoluteFile().getParentFile().mkdirs();
+        tempFile = File.createTempFile(archiveFile.getName(), ".tmp", archiveFile.getAbsoluteFile().getParentFile());
+        zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 65536));
+
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "renderkitdoc-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer = executor.submit(() -> {
+            writeEntries();
+            return null;
+        });
+    }
+
+    public File getArchiveFile() {
+        return archiveFile;
+    }
+
+    /**
+     * Reserves the entry for the given file below the root directory, and returns the stream to write its
+     * content to. The entry is written to the archive once the stream is closed and all entries reserved
+     * before it are written.
+     */
+    public OutputStream newEntry(File file) {
+        Entry entry = new Entry(getEntryName(file));
+
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Archive " + archiveFile + " is closed");
+            }
+            entries.add(entry);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Reserves the entry for the given file below the root directory, with the content of the given temporary
+     * file. The content is copied into the archive straight from that file once all entries reserved before it are
+     * written, and the temporary file is deleted then, or when the archive is aborted.
+     */
+    public void addEntry(File file, Path content) {
+        Entry entry = new Entry(getEntryName(file), content);
+
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Archive " + archiveFile + " is closed");
+            }
+            entries.add(entry);
+        }
+
+        entry.close();
+    }
+
+    /**
+     * Waits for all entries to be written and moves the archive into place.
+     *
+     * @throws IOException when writing the archive failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            entries.add(END);
+        }
+
+        try {
+            writer.get();
+            zip.close();
+            Files.move(tempFile.toPath(), archiveFile.toPath(), REPLACE_EXISTING);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new InterruptedIOException("Interrupted while writing " + archiveFile);
+        } catch (ExecutionException e) {
+            abort();
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (IOException e) {
+            abort();
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Stops writing, for instance because generating the docs failed, and deletes the partial archive. Entries not
+     * written yet are discarded and the archive file is left as it was.
+     */
+    public void abort() {
+        synchronized (this) {
+            closed = true;
+        }
+
+        writer.cancel(true);
+        executor.shutdownNow();
+
+        try {
+            zip.close();
+        } catch (IOException ignore) {
+            // The partial archive is deleted anyway
+        }
+
+        tempFile.delete();
+
+        for (Entry entry = entries.poll(); entry != null; entry = entries.poll()) {
+            entry.deleteContent();
+        }
+    }
+
+    private String getEntryName(File file) {
+        return rootDirectory.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    private void writeEntries() throws IOException, InterruptedException, ExecutionException {
+        for (Entry entry = entries.take(); entry != END; entry = entries.take()) {
+            entry.complete.get();
+
+            ZipEntry zipEntry = new ZipEntry(entry.name);
+            zipEntry.setTime(entryTime);
+            zip.putNextEntry(zipEntry);
+            entry.writeContentTo(zip);
+            zip.closeEntry();
+        }
+
+        zip.finish();
+    }
+
+    /**
+     * The content of an entry, buffered until it is closed, or kept in a temporary file.
+     */
+    private static final class Entry extends ByteArrayOutputStream {
+
+        private final String name;
+        private final Path content;
+        private final CompletableFuture<Void> complete = new CompletableFuture<>();
+
+        Entry(String name) {
+            this(name, null);
+        }
+
+        Entry(String name, Path content) {
+            super((content == null) ? 8192 : 0);
+            this.name = name;
+            this.content = content;
+        }
+
+        void writeContentTo(OutputStream out) throws IOException {
+            if (content == null) {
+                writeTo(out);
+                return;
+            }
+
+            try {
+                Files.copy(content, out);
+            } finally {
+                deleteContent();
+            }
+        }
+
+        void deleteContent() {
+            if (content != null) {
+                try {
+                    Files.deleteIfExists(content);
+                } catch (IOException ignore) {
+                    // Left in the temporary directory
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            complete.complete(null);
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+/**
+ * A machine-readable format of the renderers and attributes of a render kit, written next to the HTML docs.
+ */
+public enum ExportFormat {
+
+    /**
+     * One JSON object per line, for every renderer followed by one for every attribute of it.
+     */
+    JSON_LINES("renderers.jsonl"),
+
+    /**
+     * One row per renderer and per attribute, with a header row, as in RFC 4180.
+     */
+    CSV("renderers.csv");
+
+    private final String fileName;
+
+    ExportFormat(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Returns the name of the export file, relative to the directory of the docs of the render kit.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+}
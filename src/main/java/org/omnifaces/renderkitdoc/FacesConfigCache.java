@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.omnifaces.facesconfigparser.FacesConfigParser.parseFacesConfig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.omnifaces.facesconfigparser.digester.beans.AttributeBean;
+import org.omnifaces.facesconfigparser.digester.beans.DescriptionBean;
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+import org.omnifaces.facesconfigparser.digester.beans.FeatureBean;
+import org.omnifaces.facesconfigparser.digester.beans.RenderKitBean;
+import org.omnifaces.facesconfigparser.digester.beans.RendererBean;
+
+/**
+ * Cache of parsed faces-config files, keyed by a content hash of the faces-config file and its schemas.
+ * <p>
+ * Parsed models are kept in memory for the lifetime of the plugin class loader, which means they are shared
+ * by all executions of the plugin in the same Maven session, and in a directory on disk so they survive
+ * between builds. Only the render kits are stored, as that is all the documentation is generated from.
+ * <p>
+ * Both caches hold at most the configured number of entries, evicting the least recently used first. The
+ * disk cache is cleared when it was written by another plugin version. A disk entry ends with a checksum of its
+ * content; a corrupt or truncated entry is deleted and the faces-config file is parsed again.
+ */
+final class FacesConfigCache {
+
+    private static final int MAGIC = 0x524B4443; // "RKDC"
+    private static final int FORMAT_VERSION = 2;
+
+    private static final String ENTRY_SUFFIX = ".bin";
+    private static final String VERSION_FILE = "version";
+
+    private static final Map<String, FacesConfigBean> memoryCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final File directory;
+    private final int maxEntries;
+    private final String pluginVersion;
+
+    FacesConfigCache(File directory, int maxEntries, String pluginVersion) {
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+        this.pluginVersion = pluginVersion;
+    }
+
+    /**
+     * Returns the parsed faces-config file from the cache, or parses it with
+     * {@link org.omnifaces.facesconfigparser.FacesConfigParser#parseFacesConfig(String, String)} and
+     * stores the result when it is not cached yet.
+     */
+    FacesConfigBean parse(String facesConfig, String schemaDirectory) throws IOException {
+        String key = new InputFingerprint()
+            .addFile(new File(facesConfig))
+            .addDirectory(schemaDirectory == null ? null : new File(schemaDirectory))
+            .addString(pluginVersion)
+            .addString(String.valueOf(FORMAT_VERSION))
+            .toHex();
+
+        FacesConfigBean configBean = getFromMemory(key);
+        if (configBean != null) {
+            return configBean;
+        }
+
+        configBean = readFromDisk(key);
+        if (configBean == null) {
+            configBean = parseFacesConfig(facesConfig, schemaDirectory);
+            writeToDisk(key, configBean);
+        }
+
+        putInMemory(key, configBean);
+        return configBean;
+    }
+
+
+    // ----------------------------------------------------------- Memory cache
+
+    private static FacesConfigBean getFromMemory(String key) {
+        synchronized (memoryCache) {
+            return memoryCache.get(key);
+        }
+    }
+
+    private void putInMemory(String key, FacesConfigBean configBean) {
+        synchronized (memoryCache) {
+            memoryCache.put(key, configBean);
+            for (Iterator<String> keys = memoryCache.keySet().iterator(); memoryCache.size() > maxEntries && keys.hasNext();) {
+                keys.next();
+                keys.remove();
+            }
+        }
+    }
+
+
+    // ------------------------------------------------------------- Disk cache
+
+    private FacesConfigBean readFromDisk(String key) {
+        if (directory == null) {
+            return null;
+        }
+
+        invalidateOtherVersions();
+
+        File entry = new File(directory, key + ENTRY_SUFFIX);
+        if (!entry.isFile()) {
+            return null;
+        }
+
+        CRC32 checksum = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(entry)), checksum))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !pluginVersion.equals(readString(in))) {
+                entry.delete();
+                return null;
+            }
+
+            FacesConfigBean configBean = readFacesConfig(in);
+
+            // Also a damaged description is detected
+            long expectedChecksum = checksum.getValue();
+            if (in.readLong() != expectedChecksum || in.read() != -1) {
+                throw new IOException("Corrupt parse cache entry " + entry);
+            }
+
+            // Marks the entry as recently used for eviction
+            entry.setLastModified(System.currentTimeMillis());
+
+            return configBean;
+        } catch (IOException | RuntimeException e) {
+            // A corrupt or truncated entry is parsed again
+            entry.delete();
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, FacesConfigBean configBean) throws IOException {
+        if (directory == null) {
+            return;
+        }
+
+        directory.mkdirs();
+
+        File entry = new File(directory, key + ENTRY_SUFFIX);
+        File temp = File.createTempFile(key, ".tmp", directory);
+
+        try {
+            CRC32 checksum = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(temp)), checksum))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                writeString(out, pluginVersion);
+                writeFacesConfig(out, configBean);
+                out.writeLong(checksum.getValue());
+            }
+
+            // Other executions may be reading or writing the same entry concurrently
+            try {
+                Files.move(temp.toPath(), entry.toPath(), ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), entry.toPath(), REPLACE_EXISTING);
+            }
+        } finally {
+            temp.delete();
+        }
+
+        evict();
+    }
+
+    private void invalidateOtherVersions() {
+        File versionFile = new File(directory, VERSION_FILE);
+
+        try {
+            if (versionFile.isFile() && pluginVersion.equals(new String(Files.readAllBytes(versionFile.toPath()), UTF_8))) {
+                return;
+            }
+
+            File[] entries = directory.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+            if (entries != null) {
+                for (File entry : entries) {
+                    entry.delete();
+                }
+            }
+
+            directory.mkdirs();
+            Files.write(versionFile.toPath(), pluginVersion.getBytes(UTF_8));
+        } catch (IOException e) {
+            // Entries are still checked against the plugin version when read
+        }
+    }
+
+    private void evict() {
+        File[] entries = directory.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+        if (entries == null || entries.length <= maxEntries) {
+            return;
+        }
+
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified).reversed());
+
+        for (int i = maxEntries; i < entries.length; i++) {
+            entries[i].delete();
+        }
+    }
+
+
+    // ------------------------------------------------------------------ Codec
+
+    static void writeFacesConfig(DataOutputStream out, FacesConfigBean configBean) throws IOException {
+        RenderKitBean[] renderKits = configBean.getRenderKits();
+        out.writeInt(renderKits.length);
+
+        for (RenderKitBean renderKit : renderKits) {
+            writeString(out, renderKit.getRenderKitId());
+            writeString(out, renderKit.getRenderKitClass());
+            writeDescriptions(out, renderKit);
+
+            RendererBean[] renderers = renderKit.getRenderers();
+            out.writeInt(renderers.length);
+
+            for (RendererBean renderer : renderers) {
+                writeString(out, renderer.getComponentFamily());
+                writeString(out, renderer.getRendererType());
+                writeString(out, renderer.getRendererClass());
+                writeString(out, renderer.getExcludeAttributes());
+                writeString(out, renderer.getTagName());
+                out.writeBoolean(renderer.isRendersChildren());
+                out.writeBoolean(renderer.isIgnoreForJsp());
+                out.writeBoolean(renderer.isIgnoreAll());
+                out.writeBoolean(renderer.isBodyTag());
+                writeDescriptions(out, renderer);
+
+                AttributeBean[] attributes = renderer.getAttributes();
+                out.writeInt(attributes.length);
+
+                for (AttributeBean attribute : attributes) {
+                    writeString(out, attribute.getAttributeName());
+                    writeString(out, attribute.getAttributeClass());
+                    writeString(out, attribute.getDefaultValue());
+                    writeString(out, attribute.getSuggestedValue());
+                    out.writeBoolean(attribute.isPassThrough());
+                    out.writeBoolean(attribute.isRequired());
+                    out.writeBoolean(attribute.isTagAttribute());
+                    out.writeBoolean(attribute.isAttributeIgnoredForRenderer());
+                    out.writeBoolean(attribute.isDefaultBehavior());
+
+                    List<String> behaviors = attribute.getBehaviors();
+                    out.writeInt(behaviors == null ? -1 : behaviors.size());
+                    if (behaviors != null) {
+                        for (String behavior : behaviors) {
+                            writeString(out, behavior);
+                        }
+                    }
+
+                    writeDescriptions(out, attribute);
+                }
+            }
+        }
+    }
+
+    static FacesConfigBean readFacesConfig(DataInputStream in) throws IOException {
+        FacesConfigBean configBean = new FacesConfigBean();
+
+        for (int i = readCount(in); i > 0; i--) {
+            RenderKitBean renderKit = new RenderKitBean();
+            renderKit.setRenderKitId(readString(in));
+            renderKit.setRenderKitClass(readString(in));
+            readDescriptions(in, renderKit);
+
+            for (int j = readCount(in); j > 0; j--) {
+                RendererBean renderer = new RendererBean();
+                renderer.setComponentFamily(readString(in));
+                renderer.setRendererType(readString(in));
+                renderer.setRendererClass(readString(in));
+                renderer.setExcludeAttributes(readString(in));
+                renderer.setTagName(readString(in));
+                renderer.setRendersChildren(in.readBoolean());
+                renderer.setIgnoreForJsp(in.readBoolean());
+                renderer.setIgnoreAll(in.readBoolean());
+                renderer.setBodyTag(in.readBoolean());
+                readDescriptions(in, renderer);
+
+                for (int k = readCount(in); k > 0; k--) {
+                    AttributeBean attribute = new AttributeBean();
+                    attribute.setAttributeName(readString(in));
+                    attribute.setAttributeClass(readString(in));
+                    attribute.setDefaultValue(readString(in));
+                    attribute.setSuggestedValue(readString(in));
+                    attribute.setPassThrough(in.readBoolean());
+                    attribute.setRequired(in.readBoolean());
+                    attribute.setTagAttribute(in.readBoolean());
+                    attribute.setAttributeIgnoredForRenderer(in.readBoolean());
+                    attribute.setDefaultBehavior(in.readBoolean());
+
+                    for (int l = readCount(in); l > 0; l--) {
+                        attribute.addBehavior(readString(in));
+                    }
+
+                    readDescriptions(in, attribute);
+                    renderer.addAttribute(attribute);
+                }
+
+                renderKit.addRenderer(renderer);
+            }
+
+            configBean.addRenderKit(renderKit);
+        }
+
+        return configBean;
+    }
+
+    private static void writeDescriptions(DataOutputStream out, FeatureBean feature) throws IOException {
+        DescriptionBean[] descriptions = feature.getDescriptions();
+        out.writeInt(descriptions.length);
+
+        for (DescriptionBean description : descriptions) {
+            writeString(out, description.getLang());
+            writeString(out, description.getDescription());
+        }
+    }
+
+    private static void readDescriptions(DataInputStream in, FeatureBean feature) throws IOException {
+        for (int i = readCount(in); i > 0; i--) {
+            DescriptionBean description = new DescriptionBean();
+            description.setLang(readString(in));
+            description.setDescription(readString(in));
+            feature.addDescription(description);
+        }
+    }
+
+    // Unlike writeUTF, supports null and strings longer than 64K, which descriptions can be
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readCount(in);
+        if (length == -1) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Reads a count of items or bytes, or -1 for none. Every item takes at least one byte, so a count larger than
+     * the bytes left in the entry, which for files and byte arrays is what the stream has available, is corrupt.
+     *
+     * @throws IOException when the count is corrupt
+     */
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < -1 || count > in.available()) {
+            throw new IOException("Corrupt parse cache entry: count " + count + " with " + in.available() + " bytes left");
+        }
+
+        return count;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The list of files a generator wrote into its output directory, stored in that directory, so the next run can
+ * delete the files it no longer generates without touching any other file in the directory.
+ * <p>
+ * The files are listed one per line, relative to the directory and with <code>/</code> as separator, in a stable
+ * order.
+ */
+final class FileManifest {
+
+    static final String MANIFEST_FILE = ".manifest";
+
+    private FileManifest() {
+    }
+
+    /**
+     * Returns the files listed in the manifest of the given directory, or an empty set if it has none. Entries
+     * outside the directory are ignored.
+     */
+    static Set<File> read(File directory) throws IOException {
+        File manifestFile = new File(directory, MANIFEST_FILE);
+        if (!manifestFile.isFile()) {
+            return new HashSet<>();
+        }
+
+        Path base = directory.toPath().toAbsolutePath().normalize();
+        Set<File> files = new HashSet<>();
+
+        for (String line : Files.readAllLines(manifestFile.toPath(), UTF_8)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            Path file = base.resolve(line).normalize();
+            if (file.startsWith(base) && !file.equals(base)) {
+                files.add(new File(directory, line));
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Stores the given files, which must be below the given directory, as its manifest. An unchanged manifest is
+     * not written again.
+     */
+    static void write(File directory, Collection<File> files) throws IOException {
+        Path base = directory.toPath();
+        List<String> lines = new ArrayList<>(files.size());
+        for (File file : files) {
+            lines.add(base.relativize(file.toPath()).toString().replace(File.separatorChar, '/'));
+        }
+
+        Collections.sort(lines);
+
+        StringBuilder content = new StringBuilder(lines.size() * 64);
+        for (String line : lines) {
+            content.append(line).append('\n');
+        }
+
+        Path manifestFile = base.resolve(MANIFEST_FILE);
+        String manifest = content.toString();
+        if (!Files.isRegularFile(manifestFile) || !new String(Files.readAllBytes(manifestFile), UTF_8).equals(manifest)) {
+            Files.write(manifestFile, manifest.getBytes(UTF_8));
+        }
+    }
+
+}
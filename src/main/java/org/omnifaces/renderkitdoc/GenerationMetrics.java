@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time spent per generation phase and the number of files and bytes written, collected while generating.
+ * <p>
+ * Instances are thread-safe, so one instance can be shared by all render kits of a run. The time of a phase is
+ * the sum over the render kits, so with render kits generated concurrently it can exceed the total time.
+ */
+public final class GenerationMetrics {
+
+    public static final String PARSE = "parse";
+    public static final String MODEL = "model";
+    public static final String ASSETS = "assets";
+    public static final String FRAME = "frame";
+    public static final String SUMMARY = "summary";
+    public static final String RENDERERS = "renderers";
+    public static final String COMPRESS = "compress";
+    public static final String ARCHIVE = "archive";
+    public static final String TOTAL = "total";
+
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+
+    private final AtomicLong filesWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong filesSkipped = new AtomicLong();
+    private final AtomicLong filesDeleted = new AtomicLong();
+
+    /**
+     * Adds the time elapsed since the given {@link System#nanoTime()} to the given phase.
+     */
+    public void addTime(String phase, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        synchronized (phaseNanos) {
+            phaseNanos.merge(phase, elapsed, Long::sum);
+        }
+    }
+
+    public void fileWritten(long bytes) {
+        filesWritten.incrementAndGet();
+        bytesWritten.addAndGet(bytes);
+    }
+
+    /**
+     * Returns a stream that records a written file with the number of bytes written to it, when it is closed.
+     */
+    public OutputStream meter(OutputStream out) {
+        return new FilterOutputStream(out) {
+
+            private long bytes;
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytes++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytes += len;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    super.close();
+                    fileWritten(bytes);
+                }
+            }
+        };
+    }
+
+    /**
+     * Records a file that was not written because it already had the right content.
+     */
+    public void fileSkipped() {
+        filesSkipped.incrementAndGet();
+    }
+
+    /**
+     * Records a stale file that was deleted because it is no longer generated.
+     */
+    public void fileDeleted() {
+        filesDeleted.incrementAndGet();
+    }
+
+    public long getFilesWritten() {
+        return filesWritten.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getFilesSkipped() {
+        return filesSkipped.get();
+    }
+
+    public long getFilesDeleted() {
+        return filesDeleted.get();
+    }
+
+    /**
+     * Returns the time per phase in milliseconds, in the order the phases were first recorded.
+     */
+    public Map<String, Long> getPhaseMillis() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        synchronized (phaseNanos) {
+            phaseNanos.forEach((phase, nanos) -> millis.put(phase, NANOSECONDS.toMillis(nanos)));
+        }
+
+        return millis;
+    }
+
+    /**
+     * Returns a one line summary, such as
+     * <code>Wrote 42 files (1.3 MB), skipped 2 unchanged files, deleted 1 stale files; parse 120 ms, ...</code>.
+     */
+    public String toSummary() {
+        StringBuilder summary = new StringBuilder(128)
+            .append("Wrote ").append(getFilesWritten()).append(" files (").append(formatBytes(getBytesWritten()))
+            .append("), skipped ").append(getFilesSkipped()).append(" unchanged files, deleted ")
+            .append(getFilesDeleted()).append(" stale files");
+
+        String separator = "; ";
+        for (Map.Entry<String, Long> phase : getPhaseMillis().entrySet()) {
+            summary.append(separator).append(phase.getKey()).append(' ').append(phase.getValue()).append(" ms");
+            separator = ", ";
+        }
+
+        return summary.toString();
+    }
+
+    /**
+     * Writes the metrics as a JSON object to the given file.
+     */
+    public void writeJson(File file) throws IOException {
+        StringBuilder json = new StringBuilder(256).append("{\n  \"phaseMillis\": {");
+
+        String separator = "\n";
+        for (Map.Entry<String, Long> phase : getPhaseMillis().entrySet()) {
+            json.append(separator).append("    \"").append(phase.getKey()).append("\": ").append(phase.getValue());
+            separator = ",\n";
+        }
+
+        json.append("\n  },\n")
+            .append("  \"filesWritten\": ").append(getFilesWritten()).append(",\n")
+            .append("  \"bytesWritten\": ").append(getBytesWritten()).append(",\n")
+            .append("  \"filesSkipped\": ").append(getFilesSkipped()).append(",\n")
+            .append("  \"filesDeleted\": ").append(getFilesDeleted()).append("\n")
+            .append("}\n");
+
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), json.toString().getBytes(UTF_8));
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        }
+
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+}
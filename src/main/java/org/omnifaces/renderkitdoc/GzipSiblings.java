@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Writes a gzip compressed sibling, such as <code>index.html.gz</code>, next to the generated pages, scripts and
+ * stylesheets, for web servers that serve pre-compressed files. Siblings are compressed on threads of their own,
+ * while the next pages are generated.
+ * <p>
+ * Files below the threshold are not compressed, and a sibling is only rewritten when its file changed or when
+ * it is missing. The gzip header has no file name and no time, so the siblings are reproducible.
+ */
+final class GzipSiblings implements Closeable {
+
+    static final String EXTENSION = ".gz";
+
+    /**
+     * The default size in bytes below which files are not compressed.
+     */
+    static final int DEFAULT_THRESHOLD = 1024;
+
+    private final int threshold;
+    private final BuildContext buildContext;
+    private final GenerationMetrics metrics;
+    private final ExecutorService executor;
+
+    private final Set<File> siblings = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final List<Future<File>> compressions = new ArrayList<>();
+
+    /**
+     * @param threshold the size in bytes below which files are not compressed
+     * @param threads the number of threads to compress on
+     * @param buildContext the build context to open the siblings with, or <code>null</code> to open them directly
+     * @param metrics the metrics to record the written or skipped siblings in
+     */
+    GzipSiblings(int threshold, int threads, BuildContext buildContext, GenerationMetrics metrics) {
+        this.threshold = threshold;
+        this.buildContext = buildContext;
+        this.metrics = metrics;
+
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "renderkitdoc-gzip");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static File getSibling(File file) {
+        return new File(file.getPath() + EXTENSION);
+    }
+
+    static boolean isCompressible(String fileName) {
+        return fileName.endsWith(".html") || fileName.endsWith(".css") || fileName.endsWith(".js");
+    }
+
+    /**
+     * Compresses the given file into its sibling, when the file is compressible and large enough. The file must not
+     * be rewritten until the compressions are awaited.
+     *
+     * @param length the size of the file
+     * @param changed whether the file was written, as opposed to already having its content
+     */
+    void compress(File file, long length, boolean changed) {
+        if (length < threshold || !isCompressible(file.getName())) {
+            return;
+        }
+
+        File sibling = getSibling(file);
+        siblings.add(sibling);
+
+        if (!changed && sibling.isFile()) {
+            metrics.fileSkipped();
+            return;
+        }
+
+        Future<File> compression = executor.submit(() -> {
+            OutputStream out = (buildContext != null) ? buildContext.newFileOutputStream(sibling) : new FileOutputStream(sibling);
+
+            try (GZIPOutputStream gzip = new BestGZIPOutputStream(metrics.meter(out))) {
+                Files.copy(file.toPath(), gzip);
+            }
+
+            return sibling;
+        });
+
+        synchronized (compressions) {
+            compressions.add(compression);
+        }
+    }
+
+    /**
+     * Returns all siblings that the compressed files have, whether they were written or not.
+     */
+    Set<File> getSiblings() {
+        return siblings;
+    }
+
+    /**
+     * Waits for the compressions so far, and returns the siblings they wrote, sorted by path.
+     */
+    List<File> await() throws Exception {
+        List<Future<File>> pending;
+        synchronized (compressions) {
+            pending = new ArrayList<>(compressions);
+            compressions.clear();
+        }
+
+        List<File> written = new ArrayList<>(pending.size());
+        for (Future<File> compression : pending) {
+            try {
+                written.add(compression.get());
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        Collections.sort(written);
+        return written;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static final class BestGZIPOutputStream extends GZIPOutputStream {
+
+        BestGZIPOutputStream(OutputStream out) throws IOException {
+            super(out, 8192);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+
+}
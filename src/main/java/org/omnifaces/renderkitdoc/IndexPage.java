@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * The index.html page next to the subdirectories of several doc sets, such as those of several render kits or of
+ * several description languages, linking them.
+ * <p>
+ * The page is written like the other pages: into an archive entry, or into a file that is only replaced when its
+ * content changed, with a gzip compressed sibling if requested. The ids of the doc sets are not checked to be safe
+ * in HTML, so the generators write them through {@link #escapeHtml(String)}.
+ */
+final class IndexPage {
+
+    static final String FILE_NAME = "index.html";
+
+    private IndexPage() {
+    }
+
+    /**
+     * Writes the <code>page</code> section of the given template as the index page of the given directory, and
+     * returns the files that were changed or deleted.
+     *
+     * @param archive the archive to write the page into, or <code>null</code> to write it as a file
+     * @param gzipThreshold the size in bytes below which the page gets no gzip compressed sibling, or -1 for no
+     * sibling at all
+     */
+    static List<File> write(File directory, PageTemplate template, PageTemplate.Placeholders placeholders, DocArchive archive,
+            BuildContext buildContext, GenerationMetrics metrics, int gzipThreshold) throws Exception {
+        File indexFile = new File(directory, FILE_NAME);
+        List<File> filesTouched = new ArrayList<>();
+
+        Set<File> changedFiles = new HashSet<>();
+        GzipSiblings gzipSiblings = (archive == null && gzipThreshold >= 0) ? new GzipSiblings(gzipThreshold, 1, buildContext, metrics) : null;
+        try {
+            OutputStream stream = (archive != null) ? metrics.meter(archive.newEntry(indexFile))
+                : new ChangedFileOutputStream(indexFile, buildContext, metrics, changedFiles, gzipSiblings);
+
+            RenderKitDocGenerator.writePage(stream, out -> template.write("page", out, placeholders));
+
+            if (changedFiles.contains(indexFile)) {
+                filesTouched.add(indexFile);
+            }
+
+            if (gzipSiblings != null) {
+                filesTouched.addAll(gzipSiblings.await());
+            }
+        } finally {
+            if (gzipSiblings != null) {
+                gzipSiblings.close();
+            }
+        }
+
+        // A sibling left over from a run with gzip, or with a larger index, is stale
+        File indexSibling = GzipSiblings.getSibling(indexFile);
+        if (archive == null && (gzipSiblings == null || !gzipSiblings.getSiblings().contains(indexSibling)) && indexSibling.delete()) {
+            metrics.fileDeleted();
+            filesTouched.add(indexSibling);
+        }
+
+        return filesTouched;
+    }
+
+    static String escapeHtml(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&': escaped.append("&amp;"); break;
+                case '<': escaped.append("&lt;"); break;
+                case '>': escaped.append("&gt;"); break;
+                case '"': escaped.append("&quot;"); break;
+                case '\'': escaped.append("&#39;"); break;
+                default: escaped.append(c);
+            }
+        }
+
+        return escaped.toString();
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Digest over everything that determines the generated render kit documentation: the faces-config file,
+ * the schemas used to validate it, the generation settings, the plugin version and the bundled template
+ * resources.
+ * <p>
+ * When the digest of a build equals the one stored by the previous build, the output is known to be
+ * up to date and generation can be skipped without parsing the faces-config file.
+ */
+final class InputFingerprint {
+
+    static final String FINGERPRINT_FILE = ".fingerprint";
+
+    private final MessageDigest digest;
+
+    InputFingerprint() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    InputFingerprint addString(String value) {
+        byte[] bytes = String.valueOf(value).getBytes(UTF_8);
+        addLength(bytes.length);
+        digest.update(bytes);
+        return this;
+    }
+
+    InputFingerprint addFile(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        addLength(bytes.length);
+        digest.update(bytes);
+        return this;
+    }
+
+    /**
+     * Adds the relative name and content of every file below the given directory, in a stable order.
+     * A <code>null</code> or missing directory contributes a marker only.
+     */
+    InputFingerprint addDirectory(File directory) throws IOException {
+        if (directory == null || !directory.isDirectory()) {
+            return addString("<no directory>");
+        }
+
+        addDirectory(directory, "");
+        return this;
+    }
+
+    InputFingerprint addResource(String resourceName) {
+        addString(resourceName);
+
+        byte[] bytes = ResourceCache.getBytes(resourceName);
+        addLength(bytes.length);
+        digest.update(bytes);
+        return this;
+    }
+
+    String toHex() {
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return hex.toString();
+    }
+
+    /**
+     * Returns the fingerprint stored in the given file, or <code>null</code> if there is none.
+     */
+    static String read(File fingerprintFile) {
+        if (!fingerprintFile.isFile()) {
+            return null;
+        }
+
+        try {
+            return new String(Files.readAllBytes(fingerprintFile.toPath()), UTF_8).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static void write(File fingerprintFile, String fingerprint) throws IOException {
+        fingerprintFile.getParentFile().mkdirs();
+        Files.write(fingerprintFile.toPath(), fingerprint.getBytes(UTF_8));
+    }
+
+    private void addDirectory(File directory, String relativePath) throws IOException {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+
+        Arrays.sort(children);
+
+        for (File child : children) {
+            String childPath = relativePath + "/" + child.getName();
+            if (child.isDirectory()) {
+                addDirectory(child, childPath);
+            } else {
+                addString(childPath);
+                addFile(child);
+            }
+        }
+    }
+
+    private void addLength(int length) {
+        digest.update((byte) (length >>> 24));
+        digest.update((byte) (length >>> 16));
+        digest.update((byte) (length >>> 8));
+        digest.update((byte) length);
+    }
+
+}
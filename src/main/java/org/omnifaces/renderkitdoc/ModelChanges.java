@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.omnifaces.renderkitdoc.RenderKitModel.Attribute;
+import org.omnifaces.renderkitdoc.RenderKitModel.Renderer;
+
+/**
+ * The differences between two models of the same render kit that matter for the generated docs: which renderer
+ * pages are affected, which renderers were removed, and whether the renderers frame and the render kit summary,
+ * which list all renderers, are affected.
+ */
+final class ModelChanges {
+
+    private final boolean listingChanged;
+    private final List<Renderer> changedRenderers;
+    private final List<Renderer> removedRenderers;
+
+    private ModelChanges(boolean listingChanged, List<Renderer> changedRenderers, List<Renderer> removedRenderers) {
+        this.listingChanged = listingChanged;
+        this.changedRenderers = changedRenderers;
+        this.removedRenderers = removedRenderers;
+    }
+
+    /**
+     * Compares the given current model with the given previous model.
+     */
+    static ModelChanges compare(RenderKitModel previous, RenderKitModel current) {
+        Map<String, Renderer> previousRenderers = new HashMap<>();
+        for (Renderer renderer : previous.getRenderers()) {
+            previousRenderers.put(renderer.getFileName(), renderer);
+        }
+
+        List<Renderer> changed = new ArrayList<>();
+        for (Renderer renderer : current.getRenderers()) {
+            Renderer previousRenderer = previousRenderers.remove(renderer.getFileName());
+            if (previousRenderer == null || !isPageEqual(previousRenderer, renderer)) {
+                changed.add(renderer);
+            }
+        }
+
+        List<Renderer> removed = new ArrayList<>(previousRenderers.values());
+        boolean listingChanged = !removed.isEmpty() || !isListingEqual(previous, current);
+
+        return new ModelChanges(listingChanged, Collections.unmodifiableList(changed), Collections.unmodifiableList(removed));
+    }
+
+    /**
+     * Returns whether the renderers frame and the render kit summary are affected, because a family or renderer
+     * was added, removed or reordered, or because what they show of a renderer changed.
+     */
+    boolean isListingChanged() {
+        return listingChanged;
+    }
+
+    /**
+     * Returns the renderers that are new or whose page is affected, in the order of the render kit.
+     */
+    List<Renderer> getChangedRenderers() {
+        return changedRenderers;
+    }
+
+    /**
+     * Returns the renderers that are no longer in the render kit.
+     */
+    List<Renderer> getRemovedRenderers() {
+        return removedRenderers;
+    }
+
+    boolean isEmpty() {
+        return !listingChanged && changedRenderers.isEmpty();
+    }
+
+    private static boolean isListingEqual(RenderKitModel previous, RenderKitModel current) {
+        if (!previous.getDescription().equals(current.getDescription())
+            || !previous.getRenderersByComponentFamily().keySet().equals(current.getRenderersByComponentFamily().keySet())) {
+            return false;
+        }
+
+        for (Map.Entry<String, List<Renderer>> family : current.getRenderersByComponentFamily().entrySet()) {
+            List<Renderer> previousFamily = previous.getRenderersByComponentFamily().get(family.getKey());
+            if (previousFamily.size() != family.getValue().size()) {
+                return false;
+            }
+
+            Iterator<Renderer> previousRenderers = previousFamily.iterator();
+            for (Renderer renderer : family.getValue()) {
+                Renderer previousRenderer = previousRenderers.next();
+                if (!renderer.getFileName().equals(previousRenderer.getFileName())
+                    || !renderer.getRendererType().equals(previousRenderer.getRendererType())
+                    || !renderer.getSummary().equals(previousRenderer.getSummary())
+                    || !Objects.equals(renderer.getEnclosingTag(), previousRenderer.getEnclosingTag())
+                    || !Objects.equals(renderer.getEnclosingEndTag(), previousRenderer.getEnclosingEndTag())) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isPageEqual(Renderer previous, Renderer current) {
+        if (!current.getComponentFamily().equals(previous.getComponentFamily())
+            || !current.getRendererType().equals(previous.getRendererType())
+            || !current.getDescription().equals(previous.getDescription())
+            || current.isRendersChildren() != previous.isRendersChildren()
+            || current.hasAttributeTable() != previous.hasAttributeTable()
+            || current.getAttributes().size() != previous.getAttributes().size()) {
+            return false;
+        }
+
+        Iterator<Attribute> previousAttributes = previous.getAttributes().iterator();
+        for (Attribute attribute : current.getAttributes()) {
+            Attribute previousAttribute = previousAttributes.next();
+            if (!Objects.equals(attribute.getAttributeName(), previousAttribute.getAttributeName())
+                || !Objects.equals(attribute.getAttributeClass(), previousAttribute.getAttributeClass())
+                || attribute.isPassThrough() != previousAttribute.isPassThrough()
+                || !Objects.equals(attribute.getDefaultValue(), previousAttribute.getDefaultValue())
+                || !attribute.getDescription().equals(previousAttribute.getDescription())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
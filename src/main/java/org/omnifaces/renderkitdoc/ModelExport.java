@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.omnifaces.renderkitdoc.RenderKitModel.Attribute;
+import org.omnifaces.renderkitdoc.RenderKitModel.Renderer;
+
+/**
+ * Streams the renderers and attributes of a render kit into the export files of the given formats, one renderer
+ * at a time, so the memory used does not grow with the render kit.
+ * <p>
+ * Outside an archive, every file is written through a {@link ChangedFileOutputStream}, like the pages, so it is
+ * only replaced when its content differs. In an archive, every file is written to a temporary file that is added
+ * as an entry when the export is closed, after the pages, so the pages do not wait in memory for the export.
+ */
+final class ModelExport implements Closeable {
+
+    private static final String CSV_HEADER =
+        "record,renderKitId,componentFamily,rendererType,rendersChildren,attributeName,attributeClass,passThrough,defaultValue,description\r\n";
+
+    private final String renderKitId;
+    private final GenerationMetrics metrics;
+    private final Set<File> changedFiles;
+    private final List<ExportFile> files = new ArrayList<>();
+
+    /**
+     * @param archive the archive to write the files into, or <code>null</code> to write them into the directory
+     * @param changedFiles the set the files are added to when they are written
+     */
+    ModelExport(String renderKitId, List<ExportFormat> formats, File directory, DocArchive archive, GenerationMetrics metrics,
+            Set<File> changedFiles) throws IOException {
+        this.renderKitId = renderKitId;
+        this.metrics = metrics;
+        this.changedFiles = changedFiles;
+
+        try {
+            for (ExportFormat format : formats) {
+                files.add(new ExportFile(format, new File(directory, format.getFileName()), archive));
+            }
+
+            for (ExportFile file : files) {
+                if (file.format == ExportFormat.CSV) {
+                    file.out.write(CSV_HEADER);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the export files, in the order of the formats.
+     */
+    List<File> getFiles() {
+        List<File> exportFiles = new ArrayList<>(files.size());
+        for (ExportFile file : files) {
+            exportFiles.add(file.file);
+        }
+
+        return exportFiles;
+    }
+
+    /**
+     * Writes the records of the given renderer and of its attributes.
+     */
+    void write(Renderer renderer) throws IOException {
+        StringBuilder record = new StringBuilder(512);
+
+        for (ExportFile file : files) {
+            record.setLength(0);
+
+            if (file.format == ExportFormat.JSON_LINES) {
+                appendJsonRecords(record, renderer);
+            } else {
+                appendCsvRecords(record, renderer);
+            }
+
+            file.out.append(record);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+
+        for (ExportFile file : files) {
+            try {
+                file.complete();
+            } catch (IOException e) {
+                failure = (failure == null) ? e : failure;
+            }
+        }
+
+        if (failure != null) {
+            abort();
+            throw failure;
+        }
+    }
+
+    /**
+     * Discards the files written so far, leaving the existing files as they are.
+     */
+    void abort() {
+        for (ExportFile file : files) {
+            file.abort();
+        }
+    }
+
+    private void appendJsonRecords(StringBuilder record, Renderer renderer) {
+        appendJsonRecord(record, "renderer", renderer);
+        record.append(",\"rendersChildren\":").append(renderer.isRendersChildren());
+        appendJsonMember(record, "description", renderer.getDescription()).append("}\n");
+
+        for (Attribute attribute : renderer.getAttributes()) {
+            appendJsonRecord(record, "attribute", renderer);
+            appendJsonMember(record, "attributeName", attribute.getAttributeName());
+            appendJsonMember(record, "attributeClass", attribute.getAttributeClass());
+            record.append(",\"passThrough\":").append(attribute.isPassThrough());
+            appendJsonMember(record, "defaultValue", attribute.getDefaultValue());
+            appendJsonMember(record, "description", attribute.getDescription()).append("}\n");
+        }
+    }
+
+    private void appendJsonRecord(StringBuilder record, String type, Renderer renderer) {
+        record.append("{\"record\":\"").append(type).append('"');
+        appendJsonMember(record, "renderKitId", renderKitId);
+        appendJsonMember(record, "componentFamily", renderer.getComponentFamily());
+        appendJsonMember(record, "rendererType", renderer.getRendererType());
+    }
+
+    private static StringBuilder appendJsonMember(StringBuilder record, String name, String value) {
+        record.append(",\"").append(name).append("\":");
+        return (value == null) ? record.append("null") : SearchIndex.appendString(record, value);
+    }
+
+    private void appendCsvRecords(StringBuilder record, Renderer renderer) {
+        appendCsvRecord(record, "renderer", renderer);
+        record.append(renderer.isRendersChildren()).append(",,,,,");
+        appendCsvField(record, renderer.getDescription()).append("\r\n");
+
+        for (Attribute attribute : renderer.getAttributes()) {
+            appendCsvRecord(record, "attribute", renderer);
+            record.append(',');
+            appendCsvField(record, attribute.getAttributeName()).append(',');
+            appendCsvField(record, attribute.getAttributeClass()).append(',');
+            record.append(attribute.isPassThrough()).append(',');
+            appendCsvField(record, attribute.getDefaultValue()).append(',');
+            appendCsvField(record, attribute.getDescription()).append("\r\n");
+        }
+    }
+
+    private void appendCsvRecord(StringBuilder record, String type, Renderer renderer) {
+        record.append(type).append(',');
+        appendCsvField(record, renderKitId).append(',');
+        appendCsvField(record, renderer.getComponentFamily()).append(',');
+        appendCsvField(record, renderer.getRendererType()).append(',');
+    }
+
+    // An absent value is an empty field, and a field with a separator, quote or line break is quoted
+    private static StringBuilder appendCsvField(StringBuilder record, String value) {
+        if (value == null) {
+            return record;
+        }
+
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = (c == ',' || c == '"' || c == '\n' || c == '\r');
+        }
+
+        if (!quoted) {
+            return record.append(value);
+        }
+
+        return record.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * One export file, written through a {@link ChangedFileOutputStream} or to a temporary file for an archive
+     * entry.
+     */
+    private final class ExportFile {
+
+        final ExportFormat format;
+        final File file;
+        final DocArchive archive;
+        final ChangedFileOutputStream changedFile;
+        final Path temporaryFile;
+        final Writer out;
+        boolean added;
+
+        ExportFile(ExportFormat format, File file, DocArchive archive) throws IOException {
+            this.format = format;
+            this.file = file;
+            this.archive = archive;
+
+            OutputStream stream;
+            if (archive != null) {
+                changedFile = null;
+                temporaryFile = Files.createTempFile(file.getName(), ".tmp");
+                stream = Files.newOutputStream(temporaryFile);
+            } else {
+                changedFile = new ChangedFileOutputStream(file, null, metrics, changedFiles, null);
+                temporaryFile = null;
+                stream = changedFile;
+            }
+
+            out = new BufferedWriter(new OutputStreamWriter(stream, UTF_8), 8192);
+        }
+
+        void complete() throws IOException {
+            out.close();
+
+            if (archive != null) {
+                long size = Files.size(temporaryFile);
+                archive.addEntry(file, temporaryFile);
+                added = true;
+                metrics.fileWritten(size);
+            }
+        }
+
+        void abort() {
+            if (changedFile != null) {
+                changedFile.abort();
+                return;
+            }
+
+            try {
+                out.close();
+                if (!added) {
+                    Files.deleteIfExists(temporaryFile);
+                }
+            } catch (IOException e) {
+                // Left in the temporary directory
+            }
+        }
+    }
+
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.IllformedLocaleException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.omnifaces.facesconfigparser.digester.beans.AttributeBean;
+import org.omnifaces.facesconfigparser.digester.beans.DescriptionBean;
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+import org.omnifaces.facesconfigparser.digester.beans.FeatureBean;
+import org.omnifaces.facesconfigparser.digester.beans.RenderKitBean;
+import org.omnifaces.facesconfigparser.digester.beans.RendererBean;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Generate the docs of one parsed faces-config.xml file once per description language.
+ * <p>
+ * Every language is generated into a subdirectory named after the language, from the same parsed faces config
+ * and the same language-independent indexes of its render kits, and an index page linking them is written next
+ * to those subdirectories. The languages are generated concurrently, each by the {@link LanguageGeneration} of the
+ * caller, so the docs of a language can be those of one or of several render kits.
+ */
+public class MultiLanguageDocGenerator {
+
+    /**
+     * Generates the docs of one language.
+     */
+    @FunctionalInterface
+    public interface LanguageGeneration {
+
+        /**
+         * Generates the docs with the descriptions in the given language into the given directory, with the given
+         * number of threads, and returns the files touched.
+         *
+         * @param indexes the indexes of the render kits shared by all languages, to pass on to
+         * {@link RenderKitDocGenerator#setIndexes(Map)}
+         */
+        List<File> generate(String language, File directory, int threadCount, Map<String, RenderKitModel.Index> indexes);
+    }
+
+    private final File baseDirectory;
+    private final List<String> languages;
+
+    private List<File> filesTouched = new ArrayList<>();
+
+    private int threadCount = 1;
+    private GenerationMetrics metrics = new GenerationMetrics();
+    private BuildContext buildContext;
+    private DocArchive archive;
+    private File templateDirectory;
+    private boolean compact;
+    private boolean gzip;
+    private int gzipThreshold = GzipSiblings.DEFAULT_THRESHOLD;
+
+    /**
+     * @param outputDirectory the directory below which a <code>renderkitdoc</code> directory is created
+     * @param languages the languages to generate, or an empty list for all languages of the descriptions in the
+     * faces-config.xml file
+     */
+    public MultiLanguageDocGenerator(String outputDirectory, List<String> languages) {
+        baseDirectory = new File(outputDirectory, "renderkitdoc");
+        this.languages = languages;
+    }
+
+    /**
+     * Sets the number of threads shared by the languages. Languages are generated concurrently, and threads left
+     * over are passed on to the generation of each language.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Sets the metrics to record the index page in.
+     */
+    public void setMetrics(GenerationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @see RenderKitDocGenerator#setBuildContext(BuildContext)
+     */
+    public void setBuildContext(BuildContext buildContext) {
+        this.buildContext = buildContext;
+    }
+
+    /**
+     * Sets the archive to write the index page into. The languages are then generated one after the other, so
+     * the archive entries have a stable order.
+     */
+    public void setArchive(DocArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Sets a directory with a <code>language-index.template</code> that replaces the bundled one.
+     */
+    public void setTemplateDirectory(File templateDirectory) {
+        this.templateDirectory = templateDirectory;
+    }
+
+    /**
+     * @see RenderKitDocGenerator#setCompact(boolean)
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    /**
+     * @see RenderKitDocGenerator#setGzip(boolean)
+     */
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    public void setGzipThreshold(int gzipThreshold) {
+        this.gzipThreshold = gzipThreshold;
+    }
+
+    public void generateHtmlDocs(FacesConfigBean configBean, LanguageGeneration generation) {
+        List<String> generatedLanguages = getLanguages(configBean);
+        filesTouched = new ArrayList<>();
+
+        try {
+            // Before anything is written, so a broken template leaves the previous docs alone
+            PageTemplate indexTemplate = PageTemplate.getTemplate("language-index.template", templateDirectory, compact);
+
+            if (archive == null && !baseDirectory.exists()) {
+                baseDirectory.mkdirs();
+                filesTouched.add(baseDirectory);
+            }
+
+            generate(generatedLanguages, generation, new ConcurrentHashMap<>());
+            generateIndex(indexTemplate, generatedLanguages);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public List<File> getFilesTouched() {
+        return filesTouched;
+    }
+
+    private List<String> getLanguages(FacesConfigBean configBean) {
+        List<String> generatedLanguages = (languages != null && !languages.isEmpty()) ? languages : new ArrayList<>(findLanguages(configBean));
+        if (generatedLanguages.isEmpty()) {
+            throw new IllegalStateException("no description languages");
+        }
+
+        for (String language : generatedLanguages) {
+            checkLanguageTag(language);
+        }
+
+        return generatedLanguages;
+    }
+
+    /**
+     * Checks that the given language is a well-formed BCP 47 language tag, as <code>xml:lang</code> values must be,
+     * so it is safe to use as directory name and in the index page.
+     *
+     * @throws IllegalArgumentException when it is not
+     */
+    static void checkLanguageTag(String language) {
+        try {
+            if (language == null || language.isEmpty()) {
+                throw new IllformedLocaleException("Empty language tag");
+            }
+
+            new Locale.Builder().setLanguageTag(language);
+        } catch (IllformedLocaleException e) {
+            throw new IllegalArgumentException("Invalid description language '" + language + "', expected a BCP 47 language tag", e);
+        }
+    }
+
+    /**
+     * Returns the languages of the descriptions of the render kits, renderers and attributes, in alphabetical
+     * order.
+     */
+    static SortedSet<String> findLanguages(FacesConfigBean configBean) {
+        SortedSet<String> found = new TreeSet<>();
+
+        RenderKitBean[] kits = configBean.getRenderKits();
+        if (kits != null) {
+            for (RenderKitBean kit : kits) {
+                addLanguages(kit, found);
+
+                RendererBean[] renderers = kit.getRenderers();
+                if (renderers != null) {
+                    for (RendererBean renderer : renderers) {
+                        addLanguages(renderer, found);
+
+                        AttributeBean[] attributes = renderer.getAttributes();
+                        if (attributes != null) {
+                            for (AttributeBean attribute : attributes) {
+                                addLanguages(attribute, found);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return found;
+    }
+
+    private static void addLanguages(FeatureBean feature, Set<String> found) {
+        DescriptionBean[] descriptions = feature.getDescriptions();
+        if (descriptions != null) {
+            for (DescriptionBean description : descriptions) {
+                if (description.getLang() != null && !description.getLang().isEmpty()) {
+                    found.add(description.getLang());
+                }
+            }
+        }
+    }
+
+    private void generate(List<String> generatedLanguages, LanguageGeneration generation, Map<String, RenderKitModel.Index> indexes)
+            throws Exception {
+        if (threadCount <= 1 || generatedLanguages.size() <= 1 || archive != null) {
+            for (String language : generatedLanguages) {
+                filesTouched.addAll(generation.generate(language, new File(baseDirectory, language), threadCount, indexes));
+            }
+            return;
+        }
+
+        int languageThreads = Math.max(1, threadCount / generatedLanguages.size());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, generatedLanguages.size()));
+        try {
+            List<Future<List<File>>> trees = new ArrayList<>(generatedLanguages.size());
+            for (String language : generatedLanguages) {
+                trees.add(executor.submit(() -> generation.generate(language, new File(baseDirectory, language), languageThreads, indexes)));
+            }
+
+            // Collect in language order, so the touched files don't depend on thread scheduling
+            for (Future<List<File>> tree : trees) {
+                try {
+                    filesTouched.addAll(tree.get());
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void generateIndex(PageTemplate template, List<String> generatedLanguages) throws Exception {
+        filesTouched.addAll(IndexPage.write(baseDirectory, template, (name, page) -> {
+            if (!"languages".equals(name)) {
+                throw template.unknownPlaceholder("page", name);
+            }
+
+            for (String language : generatedLanguages) {
+                template.write("language", page, (languageName, item) -> {
+                    if (!"language".equals(languageName)) {
+                        throw template.unknownPlaceholder("language", languageName);
+                    }
+                    item.write(IndexPage.escapeHtml(language));
+                });
+            }
+        }, archive, buildContext, metrics, gzip ? gzipThreshold : -1));
+    }
+
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+import org.omnifaces.facesconfigparser.digester.beans.RenderKitBean;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Generate the docs of several render-kits from one parsed faces-config.xml file.
+ * <p>
+ * Every render kit is generated by its own {@link RenderKitDocGenerator} into a subdirectory named after the
+ * render kit id, and an index page linking them is written next to those subdirectories.
+ * <p>
+ * Each of these subdirectories is a complete doc set with the layout of a single render kit: its own frameset
+ * <code>index.html</code>, renderers frame and assets, and the renderer pages in a directory named after the render
+ * kit again, as in <code>renderkitdoc/HTML_BASIC/HTML_BASIC/renderkit-summary.html</code>. A render kit can so be
+ * published on its own. The assets are therefore written once per render kit; their content is read once per JVM
+ * and an asset file is only rewritten when its content changed.
+ * <p>
+ * The base directory has a manifest listing the index page and the files of all render kits. Files listed in the
+ * manifest of a previous run that are no longer generated are deleted, such as the pages of a previous single render
+ * kit generation into the same directory, or those of a render kit that is no longer generated.
+ */
+public class MultiRenderKitDocGenerator {
+
+    private final File baseDirectory;
+    private final List<String> renderKitIds;
+
+    private List<File> filesTouched = new ArrayList<>();
+
+    // The render kits and their generators of the previous generation, which keep their models
+    private List<String> generatedKitIds;
+    private List<RenderKitDocGenerator> generators;
+
+    private int threadCount = 1;
+    private File templateDirectory;
+    private GenerationMetrics metrics = new GenerationMetrics();
+    private String language;
+    private Map<String, RenderKitModel.Index> indexes;
+    private BuildContext buildContext;
+    private DocArchive archive;
+    private boolean searchIndex;
+    private int searchIndexShardSize = SearchIndex.DEFAULT_SHARD_SIZE;
+    private boolean sharedAttributeTables;
+    private boolean gzip;
+    private int gzipThreshold = GzipSiblings.DEFAULT_THRESHOLD;
+    private List<ExportFormat> exportFormats = Collections.emptyList();
+    private boolean compact;
+
+    /**
+     * @param outputDirectory the directory below which a <code>renderkitdoc</code> directory is created
+     * @param renderKitIds the ids of the render kits to generate, or an empty list for all render kits in the
+     * faces-config.xml file
+     * @see #inDirectory(File, List)
+     */
+    public MultiRenderKitDocGenerator(String outputDirectory, List<String> renderKitIds) {
+        this(new File(outputDirectory, "renderkitdoc"), renderKitIds);
+    }
+
+    private MultiRenderKitDocGenerator(File baseDirectory, List<String> renderKitIds) {
+        this.baseDirectory = baseDirectory;
+        this.renderKitIds = renderKitIds;
+    }
+
+    /**
+     * Creates a generator that writes the docs directly into the given directory, instead of into a
+     * <code>renderkitdoc</code> directory below it.
+     */
+    public static MultiRenderKitDocGenerator inDirectory(File baseDirectory, List<String> renderKitIds) {
+        return new MultiRenderKitDocGenerator(baseDirectory, renderKitIds);
+    }
+
+    /**
+     * Sets the number of threads shared by the render kits. Render kits are generated concurrently, and threads
+     * left over are used to generate the renderer pages of each render kit concurrently.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Sets a directory with page templates that replace the bundled ones for all render kits.
+     */
+    public void setTemplateDirectory(File templateDirectory) {
+        this.templateDirectory = templateDirectory;
+    }
+
+    /**
+     * Sets the metrics to record timings and written files of all render kits in.
+     */
+    public void setMetrics(GenerationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public GenerationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @see RenderKitDocGenerator#setLanguage(String)
+     */
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+
+    /**
+     * @see RenderKitDocGenerator#setIndexes(Map)
+     */
+    public void setIndexes(Map<String, RenderKitModel.Index> indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * @see RenderKitDocGenerator#setBuildContext(BuildContext)
+     */
+    public void setBuildContext(BuildContext buildContext) {
+        this.buildContext = buildContext;
+    }
+
+    /**
+     * Sets an archive to write the docs of all render kits into, instead of files. The render kits are then
+     * generated one after the other, so the archive entries have a stable order, and all threads are used for
+     * the renderer pages.
+     */
+    public void setArchive(DocArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Sets whether the renderers frame of every render kit is backed by a sharded search index.
+     *
+     * @see RenderKitDocGenerator#setSearchIndex(boolean)
+     */
+    public void setSearchIndex(boolean searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    public void setSearchIndexShardSize(int searchIndexShardSize) {
+        this.searchIndexShardSize = searchIndexShardSize;
+    }
+
+    /**
+     * @see RenderKitDocGenerator#setSharedAttributeTables(boolean)
+     */
+    public void setSharedAttributeTables(boolean sharedAttributeTables) {
+        this.sharedAttributeTables = sharedAttributeTables;
+    }
+
+    /**
+     * @see RenderKitDocGenerator#setGzip(boolean)
+     */
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    public void setGzipThreshold(int gzipThreshold) {
+        this.gzipThreshold = gzipThreshold;
+    }
+
+    /**
+     * @see RenderKitDocGenerator#setExportFormats(List)
+     */
+    public void setExportFormats(List<ExportFormat> exportFormats) {
+        this.exportFormats = exportFormats;
+    }
+
+    /**
+     * @see RenderKitDocGenerator#setCompact(boolean)
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    public void generateHtmlDocs(FacesConfigBean configBean) {
+        List<String> kitIds = getRenderKitIds(configBean);
+        filesTouched = new ArrayList<>();
+
+        // Set again once all docs are generated, so after a failure the next changed docs generation generates all
+        generatedKitIds = null;
+        generators = null;
+
+        try {
+            // Before anything is written, so a broken template leaves the previous docs alone
+            PageTemplate indexTemplate = PageTemplate.getTemplate("renderkit-index.template", templateDirectory, compact);
+
+            if (archive == null && !baseDirectory.exists()) {
+                baseDirectory.mkdirs();
+                filesTouched.add(baseDirectory);
+            }
+
+            List<RenderKitDocGenerator> generators = new ArrayList<>(kitIds.size());
+            for (String kitId : kitIds) {
+                RenderKitDocGenerator generator = RenderKitDocGenerator.inDirectory(new File(baseDirectory, kitId), kitId);
+                generator.setThreadCount(archive != null ? threadCount : Math.max(1, threadCount / kitIds.size()));
+                generator.setTemplateDirectory(templateDirectory);
+                generator.setMetrics(metrics);
+                generator.setLanguage(language);
+                generator.setIndexes(indexes);
+                generator.setBuildContext(buildContext);
+                generator.setArchive(archive);
+                generator.setSearchIndex(searchIndex);
+                generator.setSearchIndexShardSize(searchIndexShardSize);
+                generator.setSharedAttributeTables(sharedAttributeTables);
+                generator.setGzip(gzip);
+                generator.setGzipThreshold(gzipThreshold);
+                generator.setExportFormats(exportFormats);
+                generator.setCompact(compact);
+                generators.add(generator);
+            }
+
+            generate(generators, generator -> generator.generateHtmlDocs(configBean));
+
+            // Collect in render kit order, so the touched files don't depend on thread scheduling
+            for (RenderKitDocGenerator generator : generators) {
+                filesTouched.addAll(generator.getFilesTouched());
+            }
+
+            generateIndex(indexTemplate, configBean, kitIds);
+            updateManifest(kitIds);
+
+            this.generatedKitIds = kitIds;
+            this.generators = generators;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Generates only the docs affected by the changes since the previous generation of this generator, per
+     * render kit as described by {@link RenderKitDocGenerator#generateChangedDocs(RenderKitModel)}. When the
+     * render kits themselves changed, all docs are generated.
+     */
+    public void generateChangedDocs(FacesConfigBean configBean) {
+        List<String> kitIds = getRenderKitIds(configBean);
+        if (generators == null || !kitIds.equals(generatedKitIds)) {
+            generateHtmlDocs(configBean);
+            return;
+        }
+
+        filesTouched = new ArrayList<>();
+
+        try {
+            PageTemplate indexTemplate = PageTemplate.getTemplate("renderkit-index.template", templateDirectory, compact);
+
+            for (RenderKitDocGenerator generator : generators) {
+                generator.setMetrics(metrics);
+            }
+
+            generate(generators, generator -> generator.generateChangedDocs(configBean));
+
+            for (RenderKitDocGenerator generator : generators) {
+                filesTouched.addAll(generator.getFilesTouched());
+            }
+
+            generateIndex(indexTemplate, configBean, kitIds);
+            updateManifest(kitIds);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public List<File> getFilesTouched() {
+        return filesTouched;
+    }
+
+    private List<String> getRenderKitIds(FacesConfigBean configBean) {
+        if (renderKitIds != null && !renderKitIds.isEmpty()) {
+            return renderKitIds;
+        }
+
+        RenderKitBean[] kits = configBean.getRenderKits();
+        if (kits == null || kits.length == 0) {
+            throw new IllegalStateException("no RenderKits");
+        }
+
+        List<String> kitIds = new ArrayList<>(kits.length);
+        for (RenderKitBean kit : kits) {
+            kitIds.add(kit.getRenderKitId());
+        }
+
+        return kitIds;
+    }
+
+    private void generate(List<RenderKitDocGenerator> generators, Consumer<RenderKitDocGenerator> generation) throws Exception {
+        if (threadCount <= 1 || generators.size() <= 1 || archive != null) {
+            for (RenderKitDocGenerator generator : generators) {
+                generation.accept(generator);
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, generators.size()));
+        try {
+            List<Future<?>> kits = new ArrayList<>(generators.size());
+            for (RenderKitDocGenerator generator : generators) {
+                kits.add(executor.submit(() -> generation.accept(generator)));
+            }
+
+            for (Future<?> kit : kits) {
+                try {
+                    kit.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void generateIndex(PageTemplate template, FacesConfigBean configBean, List<String> kitIds) throws Exception {
+        filesTouched.addAll(IndexPage.write(baseDirectory, template, (name, page) -> {
+            switch (name) {
+                case "firstRenderKitId": page.write(IndexPage.escapeHtml(kitIds.get(0))); break;
+                case "renderKits": writeIndexRenderKits(template, configBean, kitIds, page); break;
+                default: throw template.unknownPlaceholder("page", name);
+            }
+        }, archive, buildContext, metrics, gzip ? gzipThreshold : -1));
+    }
+
+    /**
+     * Deletes the files listed in the manifest of the base directory that are no longer generated, and lists the
+     * index page and the files the render kits listed in their own manifests as the new manifest.
+     */
+    private void updateManifest(List<String> kitIds) throws IOException {
+        if (archive != null) {
+            return;
+        }
+
+        Set<File> generatedFiles = new HashSet<>();
+        File indexFile = new File(baseDirectory, IndexPage.FILE_NAME);
+        generatedFiles.add(indexFile);
+        if (GzipSiblings.getSibling(indexFile).isFile()) {
+            generatedFiles.add(GzipSiblings.getSibling(indexFile));
+        }
+
+        for (String kitId : kitIds) {
+            generatedFiles.addAll(FileManifest.read(new File(baseDirectory, kitId)));
+        }
+
+        List<File> staleFiles = new ArrayList<>();
+        for (File file : FileManifest.read(baseDirectory)) {
+            if (!generatedFiles.contains(file)) {
+                staleFiles.add(file);
+            }
+        }
+
+        Collections.sort(staleFiles);
+
+        for (File file : staleFiles) {
+            if (file.delete()) {
+                metrics.fileDeleted();
+                filesTouched.add(file);
+            }
+        }
+
+        FileManifest.write(baseDirectory, generatedFiles);
+    }
+
+    private void writeIndexRenderKits(PageTemplate template, FacesConfigBean configBean, List<String> kitIds, Writer out) throws IOException {
+        for (String kitId : kitIds) {
+            RenderKitBean renderKit = configBean.getRenderKit(kitId);
+            String description = (null == renderKit) ? "" : RenderKitModel.resolveDescription(renderKit, language);
+
+            template.write("render-kit", out, (name, row) -> {
+                switch (name) {
+                    case "renderKitId": row.write(IndexPage.escapeHtml(kitId)); break;
+                    case "description": row.write(description); break;
+                    default: throw template.unknownPlaceholder("render-kit", name);
+                }
+            });
+        }
+    }
+
+}
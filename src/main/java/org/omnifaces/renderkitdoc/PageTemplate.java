@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A page layout, compiled once into sections of literal text and placeholders.
+ * <p>
+ * A template consists of named sections. A section starts with a line <code>&lt;!--#section name--&gt;</code>
+ * and ends right before the next <code>&lt;!--#end--&gt;</code>, so a section ends with a newline only when the
+ * end marker is on a line of its own. Text outside sections is ignored. Placeholders have the form
+ * <code>${name}</code>; when a section is written, the literal text is written as is and every placeholder is
+ * written by the {@link Placeholders} of the caller, straight to the same output.
+ * <p>
+ * The templates of the generators are checked when they are loaded: a section may only have the placeholders the
+ * generator writes in that section, so a broken template fails before any page is written.
+ */
+public final class PageTemplate {
+
+    static final String RESOURCE_PATH = "com/sun/faces/generate/facesdoc/";
+
+    // The bundled templates of compact mode, relative to the resource path
+    static final String COMPACT_PATH = "compact/";
+
+    private static final String SECTION_START = "<!--#section ";
+    private static final String SECTION_END = "<!--#end-->";
+    private static final String MARKER_END = "-->";
+
+    private static final Map<String, PageTemplate> bundledTemplates = new ConcurrentHashMap<>();
+
+    // The placeholders the generators write, by template file name and section name
+    private static final Map<String, Map<String, Set<String>>> PLACEHOLDERS = new HashMap<>();
+
+    static {
+        declare("allrenderers-frame.template", "page", "renderKitId", "version", "families");
+        declare("allrenderers-frame.template", "version", "implVersionNumber");
+        declare("allrenderers-frame.template", "family", "componentFamily", "renderers");
+        declare("allrenderers-frame.template", "renderer", "renderKitId", "fileName", "rendererType");
+        declare("allrenderers-frame.template", "enclosed-renderer", "renderKitId", "fileName", "rendererType", "enclosingTag", "enclosingEndTag");
+        declare("allrenderers-frame.template", "indexed-page", "renderKitId", "version", "families");
+        declare("allrenderers-frame.template", "indexed-family", "familyIndex", "componentFamily", "rendererCount");
+
+        declare("renderkit-summary.template", "page", "renderKitId", "version", "description", "families");
+        declare("renderkit-summary.template", "version", "implVersionNumber");
+        declare("renderkit-summary.template", "family", "rendererCount", "componentFamily", "renderers");
+        declare("renderkit-summary.template", "renderer", "fileName", "rendererType", "summary");
+        declare("renderkit-summary.template", "renderer-separator");
+
+        declare("renderer.template", "page", "title", "componentFamily", "rendererType", "renderKitId", "description", "rendersChildren", "attributes");
+        declare("renderer.template", "title", "componentFamily", "rendererType");
+        declare("renderer.template", "renders-children");
+        declare("renderer.template", "not-renders-children");
+        declare("renderer.template", "attributes", "attributeRows");
+        declare("renderer.template", "attribute", "attributeName", "passThrough", "attributeClass", "description", "defaultValue");
+        declare("renderer.template", "no-attributes");
+        declare("renderer.template", "shared-attributes", "sharedAttributeCount", "fragmentFile");
+        declare("renderer.template", "fragment-page", "renderKitId", "renderers", "attributes");
+        declare("renderer.template", "fragment-renderer", "fileName", "componentFamily", "rendererType");
+
+        declare("renderkit-index.template", "page", "firstRenderKitId", "renderKits");
+        declare("renderkit-index.template", "render-kit", "renderKitId", "description");
+
+        declare("language-index.template", "page", "languages");
+        declare("language-index.template", "language", "language");
+    }
+
+    /**
+     * Writes the value of a placeholder.
+     */
+    @FunctionalInterface
+    public interface Placeholders {
+        void write(String name, Writer out) throws IOException;
+    }
+
+    private final String templateName;
+    private final Map<String, Section> sections;
+
+    private PageTemplate(String templateName, Map<String, Section> sections) {
+        this.templateName = templateName;
+        this.sections = sections;
+    }
+
+    private static void declare(String fileName, String sectionName, String... placeholders) {
+        PLACEHOLDERS.computeIfAbsent(fileName, name -> new HashMap<>()).put(sectionName, new HashSet<>(Arrays.asList(placeholders)));
+    }
+
+    /**
+     * Returns the template with the given file name from the given directory, or the bundled template with that
+     * name if the directory is <code>null</code> or has no such file. Bundled templates are compiled once per JVM.
+     *
+     * @throws IllegalArgumentException when a section of the template has a placeholder that the generator does not
+     * write in that section
+     */
+    public static PageTemplate getTemplate(String fileName, File templateDirectory) throws IOException {
+        return getTemplate(fileName, templateDirectory, false);
+    }
+
+    /**
+     * Returns the template like {@link #getTemplate(String, File)}, but with the compact bundled template if
+     * <code>compact</code> is set. A template in the directory replaces the bundled one in both modes.
+     */
+    public static PageTemplate getTemplate(String fileName, File templateDirectory, boolean compact) throws IOException {
+        if (templateDirectory != null) {
+            File file = new File(templateDirectory, fileName);
+            if (file.isFile()) {
+                return compile(file.toString(), new String(Files.readAllBytes(file.toPath()), UTF_8)).checkPlaceholders(fileName);
+            }
+        }
+
+        return bundledTemplates.computeIfAbsent(compact ? COMPACT_PATH + fileName : fileName,
+            name -> compile(name, ResourceCache.getString(RESOURCE_PATH + name)).checkPlaceholders(fileName));
+    }
+
+    // Sections the generator does not know are never written, so they are not checked
+    private PageTemplate checkPlaceholders(String fileName) {
+        Map<String, Set<String>> allowed = PLACEHOLDERS.get(fileName);
+        if (allowed == null) {
+            return this;
+        }
+
+        for (Map.Entry<String, Section> section : sections.entrySet()) {
+            Set<String> names = allowed.get(section.getKey());
+            if (names == null) {
+                continue;
+            }
+
+            for (String name : section.getValue().placeholders) {
+                if (!names.contains(name)) {
+                    throw new IllegalArgumentException("Unknown placeholder ${" + name + "} in section '" + section.getKey() + "' of template " + templateName);
+                }
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Compiles the given template text.
+     *
+     * @throws IllegalArgumentException when a section is not terminated
+     */
+    public static PageTemplate compile(String templateName, String text) {
+        Map<String, Section> sections = new LinkedHashMap<>();
+
+        for (int start = nextSectionStart(text, 0); start != -1;) {
+            int nameEnd = text.indexOf(MARKER_END, start);
+            if (nameEnd == -1) {
+                throw new IllegalArgumentException("Unterminated section marker in template " + templateName);
+            }
+
+            String sectionName = text.substring(start + SECTION_START.length(), nameEnd).trim();
+
+            int contentStart = nameEnd + MARKER_END.length();
+            if (text.startsWith("\r\n", contentStart)) {
+                contentStart += 2;
+            } else if (text.startsWith("\n", contentStart)) {
+                contentStart++;
+            }
+
+            int contentEnd = text.indexOf(SECTION_END, contentStart);
+            if (contentEnd == -1) {
+                throw new IllegalArgumentException("Section '" + sectionName + "' has no " + SECTION_END + " in template " + templateName);
+            }
+
+            sections.put(sectionName, Section.compile(text.substring(contentStart, contentEnd)));
+            start = nextSectionStart(text, contentEnd + SECTION_END.length());
+        }
+
+        return new PageTemplate(templateName, sections);
+    }
+
+    /**
+     * Writes the given section, with its placeholders written by the given placeholders.
+     *
+     * @throws IllegalStateException when the template has no such section
+     */
+    public void write(String sectionName, Writer out, Placeholders placeholders) throws IOException {
+        Section section = sections.get(sectionName);
+        if (section == null) {
+            throw new IllegalStateException("No section '" + sectionName + "' in template " + templateName);
+        }
+
+        section.write(out, placeholders);
+    }
+
+    /**
+     * Writes the given section, which must not have any placeholders.
+     */
+    public void write(String sectionName, Writer out) throws IOException {
+        write(sectionName, out, (name, writer) -> {
+            throw unknownPlaceholder(sectionName, name);
+        });
+    }
+
+    IllegalStateException unknownPlaceholder(String sectionName, String name) {
+        return new IllegalStateException("Unknown placeholder ${" + name + "} in section '" + sectionName + "' of template " + templateName);
+    }
+
+    // Only markers at the start of a line start a section, so that markers can be mentioned in comments
+    private static int nextSectionStart(String text, int from) {
+        for (int start = text.indexOf(SECTION_START, from); start != -1; start = text.indexOf(SECTION_START, start + 1)) {
+            if (start == 0 || text.charAt(start - 1) == '\n') {
+                return start;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * The literal texts of a section, with a placeholder between every two of them.
+     */
+    private static final class Section {
+
+        private final String[] literals;
+        private final String[] placeholders;
+
+        private Section(String[] literals, String[] placeholders) {
+            this.literals = literals;
+            this.placeholders = placeholders;
+        }
+
+        static Section compile(String content) {
+            List<String> literals = new ArrayList<>();
+            List<String> placeholders = new ArrayList<>();
+
+            int index = 0;
+            for (int start = content.indexOf("${"); start != -1; start = content.indexOf("${", index)) {
+                int end = content.indexOf('}', start);
+                if (end == -1) {
+                    break;
+                }
+
+                literals.add(content.substring(index, start));
+                placeholders.add(content.substring(start + 2, end).trim());
+                index = end + 1;
+            }
+
+            literals.add(content.substring(index));
+
+            return new Section(literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+        }
+
+        void write(Writer out, Placeholders values) throws IOException {
+            for (int i = 0; i < placeholders.length; i++) {
+                out.write(literals[i]);
+                values.write(placeholders[i], out);
+            }
+
+            out.write(literals[placeholders.length]);
+        }
+    }
+
+}
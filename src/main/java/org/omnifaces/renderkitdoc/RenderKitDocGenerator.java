@@ -16,24 +16,36 @@
 
 package org.omnifaces.renderkitdoc;
 
-import java.io.BufferedInputStream;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import org.omnifaces.facesconfigparser.digester.beans.AttributeBean;
-import org.omnifaces.facesconfigparser.digester.beans.DescriptionBean;
 import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
 import org.omnifaces.facesconfigparser.digester.beans.RenderKitBean;
 import org.omnifaces.facesconfigparser.digester.beans.RendererBean;
+import org.omnifaces.renderkitdoc.RenderKitModel.Attribute;
+import org.omnifaces.renderkitdoc.RenderKitModel.Renderer;
+import org.sonatype.plexus.build.incremental.BuildContext;
 
 /**
  * Generate javadoc style documenation about the render-kits defined in a faces-config.xml file.
@@ -43,8 +55,39 @@ public class RenderKitDocGenerator {
 
     public static String DOCTYPE = "<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.0 Transitional//EN\"\"http://www.w3.org/TR/REC-html40/loose.dtd\">";
 
+    public static final String DEFAULT_RENDER_KIT_ID = "HTML_BASIC";
+
+    // The bundled resources the generated docs are made of
+    static final List<String> TEMPLATE_RESOURCES = Collections.unmodifiableList(Arrays.asList(
+        "com/sun/faces/generate/facesdoc/index.html",
+        "com/sun/faces/generate/facesdoc/stylesheet.css",
+        "com/sun/faces/generate/facesdoc/renderkitdoc-search.js",
+        "com/sun/faces/generate/facesdoc/allrenderers-frame.template",
+        "com/sun/faces/generate/facesdoc/renderkit-summary.template",
+        "com/sun/faces/generate/facesdoc/renderer.template",
+        "com/sun/faces/generate/facesdoc/renderkit-index.template",
+        "com/sun/faces/generate/facesdoc/language-index.template",
+        "com/sun/faces/generate/facesdoc/compact/stylesheet.css",
+        "com/sun/faces/generate/facesdoc/compact/renderkitdoc.js",
+        "com/sun/faces/generate/facesdoc/compact/allrenderers-frame.template",
+        "com/sun/faces/generate/facesdoc/compact/renderkit-summary.template",
+        "com/sun/faces/generate/facesdoc/compact/renderer.template",
+        "com/sun/faces/generate/facesdoc/compact/renderkit-index.template",
+        "com/sun/faces/generate/facesdoc/compact/language-index.template"));
+
+    /**
+     * Writes the content of a page.
+     */
+    @FunctionalInterface
+    interface PageBody {
+        void write(Writer out) throws IOException;
+    }
+
     // -------------------------------------------------------- Static Variables
 
+    // The size of the buffer between a page being produced and its file
+    private static final int PAGE_BUFFER_SIZE = 8192;
+
     // The directory into which the HTML will be generated
     private File baseDirectory;
 
@@ -52,53 +95,422 @@ public class RenderKitDocGenerator {
     private File renderKitDirectory;
     private String renderKitId;
 
-    private FacesConfigBean configBean;
+    private RenderKitModel model;
 
     private List<File> filesTouched = new ArrayList<>();
 
+    // All files generated by this run, and those of them whose content actually changed
+    private Set<File> generatedFiles = new HashSet<>();
+    private Set<File> changedFiles = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    // The files generated by the previous runs, as listed in the manifest of the base directory
+    private Set<File> previousFiles = new HashSet<>();
+
+    private BuildContext buildContext;
+
+    // The number of threads used to generate the individual Renderer HTML
+    private int threadCount = 1;
+
+    // The directory with templates that replace the bundled ones, if any
+    private File templateDirectory;
+
+    private GenerationMetrics metrics = new GenerationMetrics();
+
+    // The language of the descriptions, if any
+    private String language;
+
+    // The indexes of the render kits shared with the generators of other languages, if any
+    private Map<String, RenderKitModel.Index> indexes;
+
+    private DocArchive archive;
+
+    private boolean searchIndex;
+    private int searchIndexShardSize = SearchIndex.DEFAULT_SHARD_SIZE;
+
+    private boolean sharedAttributeTables;
+    private SharedAttributeTables sharedTables;
+
+    private boolean gzip;
+    private int gzipThreshold = GzipSiblings.DEFAULT_THRESHOLD;
+    private GzipSiblings gzipSiblings;
+
+    private List<ExportFormat> exportFormats = Collections.emptyList();
+
+    private boolean compact;
+
+    private PageTemplate frameTemplate;
+    private PageTemplate summaryTemplate;
+    private PageTemplate rendererTemplate;
+
     // ------------------------------------------------------------ Constructors
 
+    /**
+     * Creates a generator that writes the docs of the given render kit into a <code>renderkitdoc</code> directory
+     * below the given output directory.
+     *
+     * @see #inDirectory(File, String)
+     */
     public RenderKitDocGenerator(String outputDirectory, String renderKitId) {
-        baseDirectory = new File(outputDirectory, "renderkitdoc");
-        if (!baseDirectory.exists()) {
-            baseDirectory.mkdirs();
-            filesTouched.add(baseDirectory);
-        }
+        this(new File(outputDirectory, "renderkitdoc"), renderKitId);
+    }
 
+    private RenderKitDocGenerator(File baseDirectory, String renderKitId) {
+        this.baseDirectory = baseDirectory;
         this.renderKitId = renderKitId;
 
         renderKitDirectory = new File(baseDirectory, renderKitId);
-        if (!renderKitDirectory.exists()) {
-            renderKitDirectory.mkdirs();
-            filesTouched.add(renderKitDirectory);
-        }
+    }
+
+    /**
+     * Creates a generator that writes the docs of the given render kit directly into the given directory,
+     * instead of into a <code>renderkitdoc</code> directory below it. The generated files are listed in a
+     * <code>.manifest</code> file in that directory, and only files listed there are deleted when they are no longer
+     * generated.
+     */
+    public static RenderKitDocGenerator inDirectory(File baseDirectory, String renderKitId) {
+        return new RenderKitDocGenerator(baseDirectory, renderKitId);
     }
 
 
     // ---------------------------------------------------------- Public Methods
 
     public void generateHtmlDocs(FacesConfigBean configBean) {
-        this.configBean = configBean;
+        long start = System.nanoTime();
+        RenderKitModel model = buildModel(configBean);
+        metrics.addTime(GenerationMetrics.MODEL, start);
+
+        generateHtmlDocs(model);
+    }
 
+    /**
+     * Generates the docs from a render kit model that was already built, for instance to share it between
+     * several generation runs.
+     */
+    public void generateHtmlDocs(RenderKitModel model) {
         try {
+            prepare(model);
+
             // Copy the static files to the output area
-            File indexFile = new File(baseDirectory, "index.html");
-            File stylesheet = new File(baseDirectory, "stylesheet.css");
+            long start = System.nanoTime();
+            copyAssets();
+            metrics.addTime(GenerationMetrics.ASSETS, start);
+
+            start = System.nanoTime();
+            generateAllRenderersFrame();
+            metrics.addTime(GenerationMetrics.FRAME, start);
+
+            start = System.nanoTime();
+            generateRenderKitSummary();
+            metrics.addTime(GenerationMetrics.SUMMARY, start);
+
+            start = System.nanoTime();
+            generateRenderersDocs();
+            metrics.addTime(GenerationMetrics.RENDERERS, start);
+
+            awaitGzipSiblings();
+
+            if (archive == null) {
+                deleteStaleFiles(baseDirectory);
+                deleteStaleFiles(renderKitDirectory);
+                writeManifest();
+            }
+        } catch (Exception e) {
+            // The docs may not match the model, so the next changed docs generation generates all docs
+            this.model = null;
+            throw new RuntimeException(e);
+        } finally {
+            closeGzipSiblings();
+        }
+    }
+
+    /**
+     * Generates the docs while reading the renderers of the render kit from the given faces-config file with a
+     * pull parser, instead of from a parsed faces-config file. Every renderer page is written as soon as the
+     * renderer is read, and only the listing of the renderers is kept for the renderers frame and the render kit
+     * summary, which are written last. The file is not validated against the schemas.
+     * <p>
+     * The pages are written on the reading thread, and the export lists the renderers in the order of the file.
+     * <p>
+     * A renderer declared more than once cannot be merged while streaming. The generation then fails with a
+     * {@link RuntimeException} caused by an {@link IllegalStateException} at the second declaration, when the
+     * pages of the renderers read before it are already written.
+     *
+     * @throws IllegalStateException when a search index or shared attribute tables are set, as these need all
+     * renderers at once
+     */
+    public void generateStreamingDocs(File facesConfig) {
+        if (searchIndex || sharedAttributeTables) {
+            throw new IllegalStateException("Streaming generation does not support a search index or shared attribute tables");
+        }
 
-            copyResourceToFile("com/sun/faces/generate/facesdoc/index.html", indexFile);
-            copyResourceToFile("com/sun/faces/generate/facesdoc/stylesheet.css", stylesheet);
+        try {
+            prepare(null);
+
+            long start = System.nanoTime();
+            copyAssets();
+            metrics.addTime(GenerationMetrics.ASSETS, start);
+
+            start = System.nanoTime();
+            RenderKitModel.ListingBuilder listing = new RenderKitModel.ListingBuilder(renderKitId, language);
+            ModelExport export = openExport();
+            RenderKitBean renderKit;
+            try {
+                renderKit = new StreamingFacesConfigReader(facesConfig, renderKitId).read(bean -> {
+                    Renderer renderer = listing.add(bean);
+                    File file = new File(renderKitDirectory, renderer.getFileName());
+                    addFileTouched(generateRendererDoc(renderer, file, reservePage(file)));
+                    if (export != null) {
+                        export.write(renderer);
+                    }
+                });
+            } catch (Exception e) {
+                if (export != null) {
+                    export.abort();
+                }
+                throw e;
+            }
+
+            if (export != null) {
+                closeExport(export);
+            }
+            metrics.addTime(GenerationMetrics.RENDERERS, start);
 
-            filesTouched.add(indexFile);
-            filesTouched.add(stylesheet);
+            this.model = listing.build(renderKit);
 
+            start = System.nanoTime();
             generateAllRenderersFrame();
+            metrics.addTime(GenerationMetrics.FRAME, start);
+
+            start = System.nanoTime();
             generateRenderKitSummary();
-            generateRenderersDocs();
+            metrics.addTime(GenerationMetrics.SUMMARY, start);
+
+            awaitGzipSiblings();
+
+            if (archive == null) {
+                deleteStaleFiles(baseDirectory);
+                deleteStaleFiles(renderKitDirectory);
+                writeManifest();
+            }
         } catch (Exception e) {
+            // The docs may not match the model, so the next changed docs generation generates all docs
+            this.model = null;
             throw new RuntimeException(e);
+        } finally {
+            closeGzipSiblings();
         }
     }
 
+    public void generateChangedDocs(FacesConfigBean configBean) {
+        long start = System.nanoTime();
+        RenderKitModel model = buildModel(configBean);
+        metrics.addTime(GenerationMetrics.MODEL, start);
+
+        generateChangedDocs(model);
+    }
+
+    /**
+     * Generates only the docs affected by the changes from the model of the previous generation of this
+     * generator to the given model: the pages of new and changed renderers, and the renderers frame and render
+     * kit summary when the listing of the renderers changed. The pages of removed renderers are deleted.
+     * <p>
+     * Without a previous generation, after a generation that failed, or when writing into an archive, all docs are
+     * generated. With shared attribute tables, a change of any renderer can change the fragments, so then all
+     * renderer pages are generated, of which only those with a different content are written.
+     */
+    public void generateChangedDocs(RenderKitModel model) {
+        RenderKitModel previous = this.model;
+        if (previous == null || archive != null) {
+            generateHtmlDocs(model);
+            return;
+        }
+
+        ModelChanges changes = ModelChanges.compare(previous, model);
+        boolean renderersChanged = !changes.getChangedRenderers().isEmpty();
+        boolean allRenderers = sharedAttributeTables && (renderersChanged || !changes.getRemovedRenderers().isEmpty());
+
+        try {
+            prepare(model);
+
+            if (changes.isListingChanged() || (searchIndex && renderersChanged)) {
+                long start = System.nanoTime();
+                generateAllRenderersFrame();
+                metrics.addTime(GenerationMetrics.FRAME, start);
+            }
+
+            if (changes.isListingChanged() || allRenderers) {
+                long start = System.nanoTime();
+                generateRenderKitSummary();
+                metrics.addTime(GenerationMetrics.SUMMARY, start);
+            }
+
+            long start = System.nanoTime();
+            if (allRenderers) {
+                generateRenderersDocs();
+            } else {
+                generateRendererPages(changes.getChangedRenderers(), null);
+
+                for (Renderer renderer : changes.getRemovedRenderers()) {
+                    deleteFile(new File(renderKitDirectory, renderer.getFileName()));
+                    deleteFile(GzipSiblings.getSibling(new File(renderKitDirectory, renderer.getFileName())));
+                }
+
+                // The export has all renderers, so it is written on its own
+                if (!changes.isEmpty() && !exportFormats.isEmpty()) {
+                    ModelExport export = openExport();
+                    try {
+                        for (Renderer renderer : model.getRenderers()) {
+                            export.write(renderer);
+                        }
+                    } catch (Exception e) {
+                        export.abort();
+                        throw e;
+                    }
+                    closeExport(export);
+                }
+            }
+            metrics.addTime(GenerationMetrics.RENDERERS, start);
+
+            awaitGzipSiblings();
+
+            if (allRenderers) {
+                // Now all files of the render kit directory were generated, so the left over fragments are known
+                deleteStaleFiles(renderKitDirectory);
+            }
+
+            writeManifest();
+        } catch (Exception e) {
+            // The docs may not match the model, so the next changed docs generation generates all docs
+            this.model = null;
+            throw new RuntimeException(e);
+        } finally {
+            closeGzipSiblings();
+        }
+    }
+
+    /**
+     * Sets the number of threads used to generate the individual renderer pages. With more than one
+     * thread the pages are generated concurrently; the output and the order of {@link #getFilesTouched()}
+     * are the same as with a single thread.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Sets a directory with page templates that replace the bundled ones. Templates not found in it are taken
+     * from the bundled ones.
+     */
+    public void setTemplateDirectory(File templateDirectory) {
+        this.templateDirectory = templateDirectory;
+    }
+
+    /**
+     * Sets the metrics to record timings and written files in, for instance to share them between render kits.
+     */
+    public void setMetrics(GenerationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public GenerationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the language to take the descriptions in, falling back to the descriptions without language. Without
+     * a language, the descriptions without language are taken, and the enclosing tags of the renderers frame are
+     * taken from the description that matches the default locale.
+     */
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+
+    /**
+     * Sets the map to take the language-independent index of the render kit from, or to add it to when it is not
+     * there yet, so that the generators of several languages of the same parsed faces config build it only once.
+     * The map must be safe for concurrent use when those generators run concurrently.
+     */
+    public void setIndexes(Map<String, RenderKitModel.Index> indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * Sets the build context to write the files through, so the IDE or build knows about them. Without one the
+     * files are written directly.
+     */
+    public void setBuildContext(BuildContext buildContext) {
+        this.buildContext = buildContext;
+    }
+
+    /**
+     * Sets an archive to write the docs into as entries, instead of as files. No files or directories are
+     * created then, and {@link #getFilesTouched()} stays empty.
+     */
+    public void setArchive(DocArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Sets whether the renderers frame lists only the component families, with the renderers and their
+     * attributes loaded on demand from a sharded search index, which also provides client-side search.
+     */
+    public void setSearchIndex(boolean searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * Sets the number of renderers after which the search index starts a new shard.
+     */
+    public void setSearchIndexShardSize(int searchIndexShardSize) {
+        this.searchIndexShardSize = searchIndexShardSize;
+    }
+
+    /**
+     * Sets whether attribute tables shared by several renderers are written once, as fragment pages that the
+     * renderer pages link to, instead of into every renderer page.
+     */
+    public void setSharedAttributeTables(boolean sharedAttributeTables) {
+        this.sharedAttributeTables = sharedAttributeTables;
+    }
+
+    /**
+     * Sets whether a gzip compressed <code>.gz</code> sibling is written next to every page, script and
+     * stylesheet, for web servers that serve pre-compressed files. The siblings are compressed concurrently with
+     * the generation of the pages. Siblings are not written into an archive.
+     */
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    /**
+     * Sets the size in bytes below which files get no gzip compressed sibling.
+     */
+    public void setGzipThreshold(int gzipThreshold) {
+        this.gzipThreshold = gzipThreshold;
+    }
+
+    /**
+     * Sets the formats to export the renderers and attributes in, next to the docs. The export files are written
+     * while the renderer pages are generated, one renderer at a time.
+     */
+    public void setExportFormats(List<ExportFormat> exportFormats) {
+        this.exportFormats = exportFormats;
+    }
+
+    /**
+     * Sets whether the pages are written with the compact templates, which have minimal markup without
+     * indentation, and leave the title script, the attribute note and the layout to a shared script and
+     * stylesheet.
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    /**
+     * Returns the files and directories that were actually changed: the created directories, the files whose
+     * content differs from the previous run, and the stale files that were deleted. Files that already had the
+     * right content are neither written nor returned.
+     */
     public List<File> getFilesTouched() {
         return filesTouched;
     }
@@ -106,339 +518,577 @@ public class RenderKitDocGenerator {
 
     // --------------------------------------------------------- Private Methods
 
-    private static String getFirstSentance(String parameter) throws Exception {
-        return parameter.substring(0, parameter.indexOf('.') + 1);
+    private RenderKitModel buildModel(FacesConfigBean configBean) {
+        if (language == null) {
+            return new RenderKitModel(configBean, renderKitId);
+        }
+
+        RenderKitModel.Index index = (indexes == null) ? RenderKitModel.Index.of(configBean, renderKitId)
+            : indexes.computeIfAbsent(renderKitId, id -> RenderKitModel.Index.of(configBean, id));
+        return RenderKitModel.forLanguage(index, language);
     }
 
-    private static void copyResourceToFile(String resourceName, File file) throws Exception {
-        byte[] bytes = new byte[1024];
+    private void copyAssets() throws Exception {
+        copyIndexToFile(new File(baseDirectory, "index.html"));
+
+        if (compact) {
+            copyResourceToFile("com/sun/faces/generate/facesdoc/compact/stylesheet.css", new File(baseDirectory, "stylesheet.css"));
+            copyResourceToFile("com/sun/faces/generate/facesdoc/compact/renderkitdoc.js", new File(baseDirectory, "renderkitdoc.js"));
+        } else {
+            copyResourceToFile("com/sun/faces/generate/facesdoc/stylesheet.css", new File(baseDirectory, "stylesheet.css"));
+        }
 
-        FileOutputStream fos = new FileOutputStream(file);
-        URL url = getCurrentLoader(fos).getResource(resourceName);
-        URLConnection conn = url.openConnection();
-        conn.setUseCaches(false);
-        BufferedInputStream bis = new BufferedInputStream(conn.getInputStream());
-        for (int len = bis.read(bytes, 0, 1024); len != -1; len = bis.read(bytes, 0, 1024)) {
-            fos.write(bytes, 0, len);
+        if (searchIndex) {
+            copyResourceToFile("com/sun/faces/generate/facesdoc/renderkitdoc-search.js", new File(baseDirectory, "renderkitdoc-search.js"));
         }
-        fos.close();
-        bis.close();
     }
 
-    private static void writeStringToFile(String toWrite, File file) throws Exception {
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            fos.write(toWrite.getBytes());
+    private void copyIndexToFile(File file) throws Exception {
+        byte[] index = ResourceCache.getBytes("com/sun/faces/generate/facesdoc/index.html");
+
+        if (!DEFAULT_RENDER_KIT_ID.equals(renderKitId)) {
+            // The bundled index opens the summary of the default render kit
+            index = ResourceCache.getString("com/sun/faces/generate/facesdoc/index.html")
+                .replace(DEFAULT_RENDER_KIT_ID + "/renderkit-summary.html", renderKitId + "/renderkit-summary.html")
+                .getBytes(UTF_8);
         }
+
+        writeAssetToFile(index, file);
     }
 
-    private static void appendResourceToStringBuffer(String resourceName, StringBuffer sb) throws Exception {
+    private void copyResourceToFile(String resourceName, File file) throws Exception {
+        writeAssetToFile(ResourceCache.getBytes(resourceName), file);
+    }
 
-        char[] chars = new char[1024];
+    /**
+     * Writes the given asset like a page, but compares it with the file without a temporary file, as it is in
+     * memory already.
+     */
+    private void writeAssetToFile(byte[] bytes, File file) throws Exception {
+        if (archive != null) {
+            OutputStream entry = newFileStream(file);
+            entry.write(bytes);
+            entry.close();
+        } else {
+            ChangedFileOutputStream.write(bytes, file, buildContext, metrics, changedFiles, gzipSiblings);
+            addFileTouched(file);
+        }
+    }
+
+    /**
+     * Writes the given page to the given file.
+     *
+     * @see #writePage(OutputStream, PageBody)
+     */
+    private void writePage(File file, PageBody body) throws Exception {
+        writePage(reservePage(file).call(), body);
+    }
 
-        URL url = getCurrentLoader(sb).getResource(resourceName);
-        URLConnection conn = url.openConnection();
-        conn.setUseCaches(false);
-        InputStreamReader isr = new InputStreamReader(conn.getInputStream());
-        for (int len = isr.read(chars, 0, 1024); len != -1; len = isr.read(chars, 0, 1024)) {
-            sb.append(chars, 0, len);
+    /**
+     * Writes a page through a buffered UTF-8 writer on the given stream, so it is encoded and written while it is
+     * produced instead of being collected in memory first, and closes the stream. Only a complete page replaces
+     * its file: when writing the page fails, the stream is aborted instead of closed, so the file is left alone.
+     */
+    static void writePage(OutputStream stream, PageBody body) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(stream, UTF_8), PAGE_BUFFER_SIZE);
+        try {
+            body.write(out);
+            out.flush();
+        } catch (Exception e) {
+            abort(stream);
+            throw e;
         }
-        isr.close();
+        out.close();
     }
 
-    private void generateAllRenderersFrame() throws Exception {
+    // An archive entry is left open, as the archive is aborted as a whole when the generation fails
+    private static void abort(OutputStream stream) {
+        if (stream instanceof ChangedFileOutputStream) {
+            ((ChangedFileOutputStream) stream).abort();
+        }
+    }
 
-        // generate the allrenderers-frame.html
-        StringBuffer sb = new StringBuffer(2048);
-        appendResourceToStringBuffer("com/sun/faces/generate/facesdoc/allrenderers-frame.top", sb);
-        sb.append("<FONT size=\"+1\" CLASS=\"FrameHeadingFont\">\n");
+    /**
+     * Returns the opener of the stream of the given page. In an archive the entry of the page is reserved right
+     * away, so the entries are in the order of this call also when the pages are written concurrently.
+     */
+    private Callable<OutputStream> reservePage(File file) {
+        OutputStream entry = (archive != null) ? metrics.meter(archive.newEntry(file)) : null;
 
-        sb.append("<B>" + renderKitId + " RenderKit ");
-        String implVersionNumber = System.getProperty("impl.version.number");
-        if (null != implVersionNumber) {
-            sb.append("(" + implVersionNumber + ")");
+        return () -> entry != null ? entry : newFileStream(file);
+    }
+
+    /**
+     * Returns a stream to the given file that leaves the file alone when closed, if it already has the written
+     * content.
+     */
+    private OutputStream newFileStream(File file) throws IOException {
+        if (archive != null) {
+            return metrics.meter(archive.newEntry(file));
+        }
+
+        return new ChangedFileOutputStream(file, buildContext, metrics, changedFiles, gzipSiblings);
+    }
+
+    /**
+     * Records a file generated by this run, which is touched only if its content changed.
+     */
+    private void addFileTouched(File file) {
+        if (archive == null) {
+            generatedFiles.add(file);
+            if (changedFiles.remove(file)) {
+                filesTouched.add(file);
+            }
         }
-        sb.append("</B></FONT>\n");
+    }
 
-        sb.append("<BR>\n\n");
-        sb.append("<DL CLASS=\"FrameItemFont\">\n\n");
+    private void awaitGzipSiblings() throws Exception {
+        if (gzipSiblings != null) {
+            long start = System.nanoTime();
+            filesTouched.addAll(gzipSiblings.await());
+            generatedFiles.addAll(gzipSiblings.getSiblings());
+            metrics.addTime(GenerationMetrics.COMPRESS, start);
+        }
+    }
 
-        Map<String, ArrayList<RendererBean>> renderersByComponentFamily = getComponentFamilyRendererMap(configBean, renderKitId);
+    private void closeGzipSiblings() {
+        if (gzipSiblings != null) {
+            gzipSiblings.close();
+            gzipSiblings = null;
+        }
+    }
 
-        for (Map.Entry<String, ArrayList<RendererBean>> entry : renderersByComponentFamily.entrySet()) {
+    /**
+     * Deletes the files in the given directory that the previous runs generated and this run did not, such as the
+     * pages of removed renderers. Files that are not in the manifest of the previous runs are left alone.
+     */
+    private void deleteStaleFiles(File directory) {
+        List<File> staleFiles = new ArrayList<>();
+        for (File file : previousFiles) {
+            if (directory.equals(file.getParentFile()) && !generatedFiles.contains(file)) {
+                staleFiles.add(file);
+            }
+        }
 
-            String curFamily = entry.getKey();
-            sb.append("  <DT>" + curFamily + "</DT>\n");
-            List<RendererBean> renderers = entry.getValue();
-
-            for (Iterator<RendererBean> rendererIter = renderers.iterator(); rendererIter.hasNext();) {
-
-                RendererBean renderer = rendererIter.next();
-                String curType = renderer.getRendererType();
-                DescriptionBean[] descriptions = renderer.getDescriptions();
-                String enclosingDiv = null, enclosingSpan = null;
-                int[] divStart = new int[1];
-                int[] spanStart = new int[1];
-                if (descriptions != null) {
-                    // Get the current operating locale
-                    String localeStr = Locale.getDefault().getCountry().toLowerCase();
-
-                    // Iterate over the descriptions and try to find one that matches
-                    // the country of the current locale
-                    for (DescriptionBean description : descriptions) {
-                        if (description.getLang() != null && (-1 != localeStr.indexOf(description.getLang().toLowerCase()))) {
-                            enclosingDiv = getFirstDivFromString(renderer.getDescription(description.getLang()).getDescription(), divStart);
-                            enclosingSpan = getFirstSpanFromString(renderer.getDescription(description.getLang()).getDescription(), spanStart);
+        Collections.sort(staleFiles);
 
-                            break;
-                        }
-                    }
-                }
+        for (File file : staleFiles) {
+            deleteFile(file);
+        }
+    }
 
-                if (enclosingDiv != null || enclosingSpan != null) {
-                    String divOrSpan = (null != enclosingDiv ? enclosingDiv : enclosingSpan);
-                    // If there is a div and a span, take which ever comes first
-                    if (enclosingDiv != null && enclosingSpan != null) {
-                        divOrSpan = (spanStart[0] < divStart[0] ? enclosingSpan : enclosingDiv);
-                    }
-                    sb.append("  <DD>" + divOrSpan);
-                    sb.append("<A HREF=\"" + renderKitId + "/" + curFamily + curType + ".html\" TARGET=\"rendererFrame\">" + curType + "</A>");
-                    sb.append((null != enclosingDiv ? "</div>" : "</span>") + "</DD>\n");
-                } else {
-                    sb.append("  <DD><A HREF=\"" + renderKitId + "/" + curFamily + curType + ".html\" TARGET=\"rendererFrame\">" + curType + "</A></DD>\n");
-                }
+    /**
+     * Stores the files generated by this run, and those of the previous runs that were kept, as the manifest of
+     * the base directory.
+     */
+    private void writeManifest() throws IOException {
+        Set<File> files = new HashSet<>(generatedFiles);
+        for (File file : previousFiles) {
+            if (file.isFile()) {
+                files.add(file);
             }
         }
 
-        sb.append("</dl>\n");
+        FileManifest.write(baseDirectory, files);
+    }
+
+    private void deleteFile(File file) {
+        if (file.delete()) {
+            metrics.fileDeleted();
+            filesTouched.add(file);
+        }
+    }
 
-        appendResourceToStringBuffer("com/sun/faces/generate/facesdoc/allrenderers-frame.bottom", sb);
+    private void createDirectories() {
+        if (!baseDirectory.exists()) {
+            baseDirectory.mkdirs();
+            filesTouched.add(baseDirectory);
+        }
 
-        File allrenderersFile = new File(baseDirectory, "allrenderers-frame.html");
-        writeStringToFile(sb.toString(), allrenderersFile);
-        filesTouched.add(allrenderersFile);
+        if (!renderKitDirectory.exists()) {
+            renderKitDirectory.mkdirs();
+            filesTouched.add(renderKitDirectory);
+        }
     }
 
-    private void generateRenderKitSummary() throws Exception {
+    /**
+     * Loads the templates and sets the model used by the generation stages below. Stages are package-private so
+     * they can be measured on their own by the benchmarks.
+     */
+    void prepare(RenderKitModel model) throws IOException {
+        // Before anything is written, so a broken template leaves the previous docs alone
+        frameTemplate = PageTemplate.getTemplate("allrenderers-frame.template", templateDirectory, compact);
+        summaryTemplate = PageTemplate.getTemplate("renderkit-summary.template", templateDirectory, compact);
+        rendererTemplate = PageTemplate.getTemplate("renderer.template", templateDirectory, compact);
+
+        this.model = model;
+
+        // A generator can be run again, for instance by the watch goal, and then reports the files of that run
+        filesTouched = new ArrayList<>();
+        generatedFiles = new HashSet<>();
+        changedFiles.clear();
+
+        if (archive == null) {
+            createDirectories();
+            previousFiles = FileManifest.read(baseDirectory);
+
+            if (gzip) {
+                gzipSiblings = new GzipSiblings(gzipThreshold, threadCount, buildContext, metrics);
+            }
+        }
 
-        // generate the renderkit-summary.html
-        StringBuffer sb = new StringBuffer(2048);
-        appendResourceToStringBuffer("com/sun/faces/generate/facesdoc/renderkit-summary.top", sb);
-        sb.append("<H2>" + renderKitId + " RenderKit ");
+    }
 
-        String implVersionNumber = System.getProperty("impl.version.number");
-        if (null != implVersionNumber) {
-            sb.append("(" + implVersionNumber + ")");
+    void generateAllRenderersFrame() throws Exception {
+        if (searchIndex) {
+            generateIndexedRenderersFrame();
+            return;
         }
-        sb.append("</H2>");
-        sb.append("<BR>\n\n");
 
-        RenderKitBean renderKit = configBean.getRenderKit(renderKitId);
-        if (renderKit == null) {
-            RenderKitBean[] kits = configBean.getRenderKits();
-            if (kits == null) {
-                throw new IllegalStateException("no RenderKits");
+        // generate the allrenderers-frame.html
+        File allrenderersFile = new File(baseDirectory, "allrenderers-frame.html");
+        writePage(allrenderersFile, out -> frameTemplate.write("page", out, (name, page) -> {
+            switch (name) {
+                case "renderKitId": page.write(renderKitId); break;
+                case "version": writeVersion(frameTemplate, page); break;
+                case "families": writeFrameFamilies(page); break;
+                default: throw frameTemplate.unknownPlaceholder("page", name);
             }
+        }));
+        addFileTouched(allrenderersFile);
+    }
+
+    private void writeFrameFamilies(Writer out) throws IOException {
+        for (Map.Entry<String, List<Renderer>> entry : model.getRenderersByComponentFamily().entrySet()) {
+
+            String curFamily = entry.getKey();
+            List<Renderer> renderers = entry.getValue();
+
+            frameTemplate.write("family", out, (name, family) -> {
+                switch (name) {
+                    case "componentFamily": family.write(curFamily); break;
+                    case "renderers": writeFrameRenderers(renderers, family); break;
+                    default: throw frameTemplate.unknownPlaceholder("family", name);
+                }
+            });
+        }
+    }
 
-            renderKit = kits[0];
-            if (renderKit == null) {
-                throw new IllegalStateException("no RenderKits");
+    private void writeFrameRenderers(List<Renderer> renderers, Writer out) throws IOException {
+        for (Renderer curRenderer : renderers) {
+
+            String enclosingTag = curRenderer.getEnclosingTag();
+            String enclosingEndTag = curRenderer.getEnclosingEndTag();
+            String section = (null != enclosingTag ? "enclosed-renderer" : "renderer");
+
+            frameTemplate.write(section, out, (name, entry) -> {
+                switch (name) {
+                    case "renderKitId": entry.write(renderKitId); break;
+                    case "fileName": entry.write(curRenderer.getFileName()); break;
+                    case "rendererType": entry.write(curRenderer.getRendererType()); break;
+                    case "enclosingTag": entry.write(enclosingTag); break;
+                    case "enclosingEndTag": entry.write(enclosingEndTag); break;
+                    default: throw frameTemplate.unknownPlaceholder(section, name);
+                }
+            });
+        }
+    }
+
+    /**
+     * Generates the renderers frame with only the component families, and the search index of the renderers in
+     * the same pass over the families.
+     */
+    private void generateIndexedRenderersFrame() throws Exception {
+        SearchIndex index = new SearchIndex(renderKitId, searchIndexShardSize);
+
+        File allrenderersFile = new File(baseDirectory, "allrenderers-frame.html");
+        writePage(allrenderersFile, out -> frameTemplate.write("indexed-page", out, (name, page) -> {
+            switch (name) {
+                case "renderKitId": page.write(renderKitId); break;
+                case "version": writeVersion(frameTemplate, page); break;
+                case "families": writeIndexedFamilies(index, page); break;
+                default: throw frameTemplate.unknownPlaceholder("indexed-page", name);
             }
+        }));
+        addFileTouched(allrenderersFile);
+
+        File indexFile = new File(baseDirectory, SearchIndex.INDEX_FILE);
+        writePage(indexFile, out -> out.write(index.getIndexScript()));
+        addFileTouched(indexFile);
+
+        for (int shard = 0; shard < index.getShardCount(); shard++) {
+            File shardFile = new File(baseDirectory, SearchIndex.getShardFile(shard));
+            String shardScript = index.getShardScript(shard);
+            writePage(shardFile, out -> out.write(shardScript));
+            addFileTouched(shardFile);
         }
+    }
 
-        DescriptionBean descBean = renderKit.getDescription("");
-        String description = (null == descBean) ? "" : descBean.getDescription();
-        sb.append("<P>" + description + "</P>\n");
-        sb.append("<P />");
-        sb.append("<TABLE BORDER=\"1\" CELLPADDING=\"3\" CELLSPACING=\"0\" WIDTH=\"100%\">");
-        sb.append("<TR BGCOLOR=\"#CCCCFF\" CLASS=\"TableHeadingColor\">\n");
-        sb.append("<TD COLSPAN=\"3\"><FONT SIZE=\"+2\">\n");
-        sb.append("<B>Renderer Summary</B></FONT></TD>\n");
-        sb.append("\n");
-        sb.append("<TR>\n");
-        sb.append("<TH>component-family</TH>\n");
-        sb.append("<TH>renderer-type</TH>\n");
-        sb.append("<TH>description</TH>\n");
-        sb.append("</TR>\n");
-
-        Map<String, ArrayList<RendererBean>> renderersByComponentFamily = getComponentFamilyRendererMap(configBean, renderKitId);
-
-        for (Map.Entry<String, ArrayList<RendererBean>> entry : renderersByComponentFamily.entrySet()) {
+    private void writeIndexedFamilies(SearchIndex index, Writer out) throws IOException {
+        for (Map.Entry<String, List<Renderer>> entry : model.getRenderersByComponentFamily().entrySet()) {
             String curFamily = entry.getKey();
-            List<RendererBean> renderers = entry.getValue();
-
-            sb.append("  <TR>\n");
-            sb.append("    <TD rowspan=\"" + renderers.size() + "\">" + curFamily + "</TD>\n");
-            for (Iterator<RendererBean> rendererIter = renderers.iterator(); rendererIter.hasNext();) {
-
-                RendererBean renderer = rendererIter.next();
-                String curType = renderer.getRendererType();
-                sb.append("    <TD><A HREF=\"" + curFamily + curType + ".html\" TARGET=\"rendererFrame\">" + curType + "</A></TD>\n");
-                descBean = renderer.getDescription("");
-                description = (null == descBean) ? "" : descBean.getDescription();
-                sb.append("    <TD>" + getFirstSentance(description) + "</TD>");
-                if (rendererIter.hasNext()) {
-                    sb.append("  </TR>\n");
-                    sb.append("  <TR>\n");
+            List<Renderer> renderers = entry.getValue();
+            int familyIndex = index.addFamily(curFamily, renderers);
+
+            frameTemplate.write("indexed-family", out, (name, family) -> {
+                switch (name) {
+                    case "familyIndex": family.write(String.valueOf(familyIndex)); break;
+                    case "componentFamily": family.write(curFamily); break;
+                    case "rendererCount": family.write(String.valueOf(renderers.size())); break;
+                    default: throw frameTemplate.unknownPlaceholder("indexed-family", name);
                 }
+            });
+        }
+    }
+
+    void generateRenderKitSummary() throws Exception {
+
+        // generate the renderkit-summary.html
+        File renderkitFile = new File(renderKitDirectory, "renderkit-summary.html");
+        writePage(renderkitFile, out -> summaryTemplate.write("page", out, (name, page) -> {
+            switch (name) {
+                case "renderKitId": page.write(renderKitId); break;
+                case "version": writeVersion(summaryTemplate, page); break;
+                case "description": page.write(model.getDescription()); break;
+                case "families": writeSummaryFamilies(page); break;
+                default: throw summaryTemplate.unknownPlaceholder("page", name);
             }
-            sb.append("  </TR>\n");
+        }));
+        addFileTouched(renderkitFile);
+    }
+
+    private void writeSummaryFamilies(Writer out) throws IOException {
+        for (Map.Entry<String, List<Renderer>> entry : model.getRenderersByComponentFamily().entrySet()) {
+            String curFamily = entry.getKey();
+            List<Renderer> renderers = entry.getValue();
+
+            summaryTemplate.write("family", out, (name, family) -> {
+                switch (name) {
+                    case "rendererCount": family.write(String.valueOf(renderers.size())); break;
+                    case "componentFamily": family.write(curFamily); break;
+                    case "renderers": writeSummaryRenderers(renderers, family); break;
+                    default: throw summaryTemplate.unknownPlaceholder("family", name);
+                }
+            });
         }
+    }
 
-        sb.append("</TABLE>\n\n");
+    private void writeSummaryRenderers(List<Renderer> renderers, Writer out) throws IOException {
+        for (Iterator<Renderer> rendererIter = renderers.iterator(); rendererIter.hasNext();) {
 
-        appendResourceToStringBuffer("com/sun/faces/generate/facesdoc/renderkit-summary.bottom", sb);
+            Renderer renderer = rendererIter.next();
+            summaryTemplate.write("renderer", out, (name, row) -> {
+                switch (name) {
+                    case "fileName": row.write(renderer.getFileName()); break;
+                    case "rendererType": row.write(renderer.getRendererType()); break;
+                    case "summary": row.write(renderer.getSummary()); break;
+                    default: throw summaryTemplate.unknownPlaceholder("renderer", name);
+                }
+            });
 
-        File renderkitFile = new File(renderKitDirectory, "renderkit-summary.html");
-        writeStringToFile(sb.toString(), renderkitFile);
-        filesTouched.add(renderkitFile);
+            if (rendererIter.hasNext()) {
+                summaryTemplate.write("renderer-separator", out);
+            }
+        }
     }
 
-    private void generateRenderersDocs() throws Exception {
-        StringBuffer sb;
-        RenderKitBean renderKit;
-        DescriptionBean descBean;
+    private static void writeVersion(PageTemplate template, Writer out) throws IOException {
+        String implVersionNumber = System.getProperty("impl.version.number");
+        if (null != implVersionNumber) {
+            template.write("version", out, (name, version) -> {
+                if (!"implVersionNumber".equals(name)) {
+                    throw template.unknownPlaceholder("version", name);
+                }
+                version.write(implVersionNumber);
+            });
+        }
+    }
 
-        String description;
-        String rendererType;
-        String componentFamily;
-        String defaultValue;
-        String title;
+    void generateRenderersDocs() throws Exception {
 
         // generate the docus for each renderer
 
-        if ((renderKit = configBean.getRenderKit(renderKitId)) == null) {
-            RenderKitBean[] kits = configBean.getRenderKits();
-            if (kits == null) {
-                throw new IllegalStateException("no RenderKits");
+        List<Renderer> renderers = model.getRenderers();
+
+        if (sharedAttributeTables) {
+            sharedTables = SharedAttributeTables.plan(renderers);
+            for (SharedAttributeTables.Fragment fragment : sharedTables.getFragments()) {
+                addFileTouched(generateFragmentDoc(fragment));
             }
+        }
 
-            renderKit = kits[0];
-            if (renderKit == null) {
-                throw new IllegalStateException("no RenderKits");
+        ModelExport export = openExport();
+        try {
+            generateRendererPages(renderers, export);
+        } catch (Exception e) {
+            if (export != null) {
+                export.abort();
             }
+            throw e;
         }
 
-        RendererBean[] renderers = renderKit.getRenderers();
-        AttributeBean[] attributes;
-        sb = new StringBuffer(2048);
+        if (export != null) {
+            closeExport(export);
+        }
+    }
 
-        for (int i = 0, len = renderers.length; i < len; i++) {
-            if (renderers[i] == null) {
-                throw new IllegalStateException("null Renderer at index: " + i);
+    /**
+     * Generates the pages of the given renderers, and writes each renderer to the given export, if any, right
+     * after its page.
+     */
+    private void generateRendererPages(List<Renderer> renderers, ModelExport export) throws Exception {
+        if (threadCount <= 1 || renderers.size() <= 1) {
+            for (Renderer renderer : renderers) {
+                File file = new File(renderKitDirectory, renderer.getFileName());
+                addFileTouched(generateRendererDoc(renderer, file, reservePage(file)));
+                if (export != null) {
+                    export.write(renderer);
+                }
             }
-            
-            attributes = renderers[i].getAttributes();
-
-            sb.append(DOCTYPE + "\n");
-            sb.append("<html>\n");
-            sb.append("<head>\n");
-            // PENDING timestamp
-            sb.append("<title>\n");
-            title = "<font size=\"-1\">component-family:</font> " + (componentFamily = renderers[i].getComponentFamily())
-                    + " <font size=\"-1\">renderer-type:</font> " + (rendererType = renderers[i].getRendererType());
-            sb.append(title + "\n");
-            sb.append("</title>\n");
-            // PENDING META tag
-            sb.append("<link REL =\"stylesheet\" TYPE=\"text/css\" HREF=\"../stylesheet.css\" TITLE=\"Style\">\n");
-            sb.append("</head>\n");
-            sb.append("<script>\n");
-            sb.append("function asd()\n");
-            sb.append("{\n");
-            sb.append("  parent.document.title=" + title + "\n");
-            sb.append("}\n");
-            sb.append("</SCRIPT>\n");
-            sb.append("<body BGCOLOR=\"white\" onload=\"asd();\">\n");
-            sb.append("\n");
-            sb.append("<H2><font size=\"-1\">" + renderKitId + " render-kit</font>\n");
-            sb.append("<br />\n");
-            sb.append(title + "\n");
-            sb.append("</H2>\n");
-            sb.append("<HR />\n");
-            descBean = renderers[i].getDescription("");
-            description = (null == descBean) ? "" : descBean.getDescription();
-            sb.append("<P>" + description + "</P>\n");
-
-            // Render our renders children status
-
-            if (renderers[i].isRendersChildren()) {
-                sb.append("<P>This renderer is responsible for rendering its children.</P>");
-            } else {
-                sb.append("<P>This renderer is not responsible for rendering its children.</P>");
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, renderers.size()));
+        try {
+            List<Future<File>> pages = new ArrayList<>(renderers.size());
+            for (Renderer renderer : renderers) {
+                File file = new File(renderKitDirectory, renderer.getFileName());
+                Callable<OutputStream> page = reservePage(file);
+                pages.add(executor.submit(() -> generateRendererDoc(renderer, file, page)));
             }
 
-            // If we have attributes
-            if ((null == attributes) || (0 < attributes.length)) {
-                sb.append("<HR />\n");
-                sb.append("<a NAME=\"attributes\"><!-- --></a>\n");
-                sb.append("\n");
-                sb.append("<h3>Note:</h3>\n");
-                sb.append("\n");
-                sb.append("<p>Attributes with a <code class=\"changed_modified_2_2\">ignored-by-renderer</code> value of\n");
-                sb.append("<code>true</code> are not interpreted by the renderer and are conveyed\n");
-                sb.append("straight to the rendered markup, without checking for validity.  Attributes with a\n");
-                sb.append("<code class=\"changed_modified_2_2\">ignored-by-renderer</code> value of <code>false</code> are interpreted\n");
-                sb.append("by the renderer, and may or may not be checked for validity by the renderer.</p>\n");
-                sb.append("\n");
-                sb.append("<table BORDER=\"1\" CELLPADDING=\"3\" CELLSPACING=\"0\" WIDTH=\"100%\">\n");
-                sb.append("<tr BGCOLOR=\"#CCCCFF\" CLASS=\"TableHeadingColor\">\n");
-                sb.append("<td COLSPAN=\"5\"><font SIZE=\"+2\">\n");
-                sb.append("<b>Attributes</b></font></td>\n");
-                sb.append("</tr>\n");
-                sb.append("<tr BGCOLOR=\"#CCCCFF\" CLASS=\"TableHeadingColor\">\n");
-                sb.append("<th><b>attribute-name</b></th>\n");
-                sb.append("<th><b class=\"changed_modified_2_2\">ignored-by-renderer</b></th>\n");
-                sb.append("<th><b>attribute-class</b></th>\n");
-                sb.append("<th><b>description</b></th>\n");
-                sb.append("<th><b>default-value</b></th>\n");
-                sb.append("</tr>\n");
-                sb.append("	    \n");
-
-                // Output each attribute
-                if (attributes != null) {
-                    for (int j = 0, attrLen = attributes.length; j < attrLen; j++) {
-                        if (attributes[j].isAttributeIgnoredForRenderer()) {
-                            continue;
-                        }
-                        sb.append("<tr BGCOLOR=\"white\" CLASS=\"TableRowColor\">\n");
-                        sb.append("<td ALIGN=\"right\" VALIGN=\"top\" WIDTH=\"1%\"><code>\n");
-                        sb.append("&nbsp;" + attributes[j].getAttributeName() + "\n");
-                        sb.append("</td>\n");
-                        sb.append("<td ALIGN=\"right\" VALIGN=\"top\">" + attributes[j].isPassThrough() + "</td>\n");
-                        sb.append("<td><code>" + attributes[j].getAttributeClass() + "</code></td>\n");
-                        descBean = attributes[j].getDescription("");
-                        description = (null == descBean) ? "" : descBean.getDescription();
-                        sb.append("<td>" + description + "</td>\n");
-                        if (null == (defaultValue = attributes[j].getDefaultValue())) {
-                            defaultValue = "undefined";
-                        }
-                        sb.append("<td>" + defaultValue + "<td>\n");
-                        sb.append("</tr>\n");
-                    }
+            // Collect in renderer order, so the touched files and the export don't depend on thread scheduling
+            for (int i = 0; i < pages.size(); i++) {
+                try {
+                    addFileTouched(pages.get(i).get());
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+
+                if (export != null) {
+                    export.write(renderers.get(i));
                 }
-                sb.append("</table>\n");
-            } else {
-                sb.append("<p>This renderer-type has no attributes</p>\n");
             }
-            sb.append("<hr>\n");
-            sb.append("Copyright (c) 2003-2017 Oracle America, Inc. All Rights Reserved.\n");
-            sb.append("</body>\n");
-            sb.append("</html>\n");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-            File file = new File(renderKitDirectory, componentFamily + rendererType + ".html");
-            writeStringToFile(sb.toString(), file);
-            filesTouched.add(file);
+    private ModelExport openExport() throws IOException {
+        return exportFormats.isEmpty() ? null : new ModelExport(renderKitId, exportFormats, baseDirectory, archive, metrics, changedFiles);
+    }
 
-            sb.delete(0, sb.length());
+    private void closeExport(ModelExport export) throws IOException {
+        export.close();
+        for (File file : export.getFiles()) {
+            addFileTouched(file);
         }
     }
 
-    private static ClassLoader getCurrentLoader(Object fallbackClass) {
-        ClassLoader loader = Thread.currentThread().getContextClassLoader();
-        if (loader == null) {
-            loader = fallbackClass.getClass().getClassLoader();
+    private File generateRendererDoc(Renderer renderer, File file, Callable<OutputStream> pageStream) throws Exception {
+        writePage(pageStream.call(), out -> rendererTemplate.write("page", out, (name, page) -> {
+            switch (name) {
+                case "title": writeRendererTitle(renderer, page); break;
+                case "componentFamily": page.write(renderer.getComponentFamily()); break;
+                case "rendererType": page.write(renderer.getRendererType()); break;
+                case "renderKitId": page.write(renderKitId); break;
+                case "description": page.write(renderer.getDescription()); break;
+                case "rendersChildren":
+                    // Render our renders children status
+                    rendererTemplate.write(renderer.isRendersChildren() ? "renders-children" : "not-renders-children", page);
+                    break;
+                case "attributes": writeRendererAttributes(renderer, page); break;
+                default: throw rendererTemplate.unknownPlaceholder("page", name);
+            }
+        }));
+
+        return file;
+    }
+
+    private void writeRendererTitle(Renderer renderer, Writer out) throws IOException {
+        rendererTemplate.write("title", out, (name, title) -> {
+            switch (name) {
+                case "componentFamily": title.write(renderer.getComponentFamily()); break;
+                case "rendererType": title.write(renderer.getRendererType()); break;
+                default: throw rendererTemplate.unknownPlaceholder("title", name);
+            }
+        });
+    }
+
+    private void writeRendererAttributes(Renderer renderer, Writer out) throws IOException {
+
+        // If we have attributes
+        if (!renderer.hasAttributeTable()) {
+            rendererTemplate.write("no-attributes", out);
+            return;
         }
 
-        return loader;
+        if (sharedTables == null) {
+            writeAttributeTable(renderer.getAttributes(), Collections.emptyList(), out);
+        } else {
+            writeAttributeTable(sharedTables.getOwnAttributes(renderer), sharedTables.getFragments(renderer), out);
+        }
+    }
+
+    private void writeAttributeTable(List<Attribute> attributes, List<SharedAttributeTables.Fragment> fragments, Writer out) throws IOException {
+        rendererTemplate.write("attributes", out, (name, table) -> {
+            if (!"attributeRows".equals(name)) {
+                throw rendererTemplate.unknownPlaceholder("attributes", name);
+            }
+
+            // Output each attribute
+            for (Attribute attribute : attributes) {
+                rendererTemplate.write("attribute", table, (attributeName, row) -> {
+                    switch (attributeName) {
+                        case "attributeName": row.write(attribute.getAttributeName()); break;
+                        case "passThrough": row.write(String.valueOf(attribute.isPassThrough())); break;
+                        case "attributeClass": row.write(String.valueOf(attribute.getAttributeClass())); break;
+                        case "description": row.write(attribute.getDescription()); break;
+                        case "defaultValue":
+                            String defaultValue = attribute.getDefaultValue();
+                            row.write(null == defaultValue ? "undefined" : defaultValue);
+                            break;
+                        default: throw rendererTemplate.unknownPlaceholder("attribute", attributeName);
+                    }
+                });
+            }
+
+            // Followed by the links to the attributes shared with other renderers
+            for (SharedAttributeTables.Fragment fragment : fragments) {
+                rendererTemplate.write("shared-attributes", table, (sharedName, row) -> {
+                    switch (sharedName) {
+                        case "sharedAttributeCount": row.write(String.valueOf(fragment.getAttributes().size())); break;
+                        case "fragmentFile": row.write(fragment.getFileName()); break;
+                        default: throw rendererTemplate.unknownPlaceholder("shared-attributes", sharedName);
+                    }
+                });
+            }
+        });
+    }
+
+    private File generateFragmentDoc(SharedAttributeTables.Fragment fragment) throws Exception {
+        File file = new File(renderKitDirectory, fragment.getFileName());
+        writePage(file, out -> rendererTemplate.write("fragment-page", out, (name, page) -> {
+            switch (name) {
+                case "renderKitId": page.write(renderKitId); break;
+                case "renderers":
+                    for (Renderer renderer : fragment.getRenderers()) {
+                        rendererTemplate.write("fragment-renderer", page, (rendererName, item) -> {
+                            switch (rendererName) {
+                                case "fileName": item.write(renderer.getFileName()); break;
+                                case "componentFamily": item.write(renderer.getComponentFamily()); break;
+                                case "rendererType": item.write(renderer.getRendererType()); break;
+                                default: throw rendererTemplate.unknownPlaceholder("fragment-renderer", rendererName);
+                            }
+                        });
+                    }
+                    break;
+                case "attributes": writeAttributeTable(fragment.getAttributes(), Collections.emptyList(), page); break;
+                default: throw rendererTemplate.unknownPlaceholder("fragment-page", name);
+            }
+        }));
+
+        return file;
     }
 
     public static Map<String, ArrayList<RendererBean>> getComponentFamilyRendererMap(FacesConfigBean configBean, String renderKitId) {
@@ -479,45 +1129,4 @@ public class RenderKitDocGenerator {
         return result;
     }
 
-    private static String getFirstDivFromString(String toParse, int[] out) {
-        String result = null;
-
-        if (toParse == null) {
-            return result;
-        }
-
-        int divStart, divEnd;
-        if (-1 != (divStart = toParse.indexOf("<div"))) {
-            if (-1 != (divEnd = toParse.indexOf(">", divStart))) {
-                result = toParse.substring(divStart, divEnd + 1);
-            }
-        }
-        if (out != null && 0 < out.length) {
-            out[0] = divStart;
-        }
-
-        return result;
-    }
-
-    private static String getFirstSpanFromString(String toParse, int[] out) {
-        String result = null;
-
-        if (null == toParse) {
-            return result;
-        }
-
-        int spanStart, spanEnd;
-        if (-1 != (spanStart = toParse.indexOf("<span"))) {
-            if (-1 != (spanEnd = toParse.indexOf(">", spanStart))) {
-                result = toParse.substring(spanStart, spanEnd + 1);
-            }
-        }
-        if (null != out && 0 < out.length) {
-            out[0] = spanStart;
-        }
-
-        return result;
-    }
-
-
 }
@@ -0,0 +1,491 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSortedMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.omnifaces.facesconfigparser.digester.beans.AttributeBean;
+import org.omnifaces.facesconfigparser.digester.beans.DescriptionBean;
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+import org.omnifaces.facesconfigparser.digester.beans.FeatureBean;
+import org.omnifaces.facesconfigparser.digester.beans.RenderKitBean;
+import org.omnifaces.facesconfigparser.digester.beans.RendererBean;
+
+/**
+ * Read-only view of one render kit of a parsed faces-config.xml file, prepared for generating its docs.
+ * <p>
+ * It is built once per generation run and holds everything the generation stages need: the renderers in
+ * render kit order and grouped by component family, their resolved descriptions, the attributes that are
+ * documented, the names of the generated files and the analysis of the descriptions. Instances copy what they
+ * need from the parsed beans, which may be shared through the parse cache, and do not expose them, so they are
+ * immutable and can be shared by concurrent stages.
+ */
+public final class RenderKitModel {
+
+    private final String renderKitId;
+    private final String language;
+    private final String description;
+    private final List<Renderer> renderers;
+    private final SortedMap<String, List<Renderer>> renderersByComponentFamily;
+
+    public RenderKitModel(FacesConfigBean configBean, String renderKitId) {
+        this(configBean, renderKitId, Locale.getDefault());
+    }
+
+    /**
+     * @param locale the locale whose country selects the description that provides the enclosing tag of a
+     * renderer in the renderers frame
+     */
+    public RenderKitModel(FacesConfigBean configBean, String renderKitId, Locale locale) {
+        this(Index.of(configBean, renderKitId), locale.getCountry().toLowerCase(), null);
+    }
+
+    private RenderKitModel(Index index, String localeCountry, String language) {
+        List<Renderer> renderers = new ArrayList<>(index.renderers.size());
+
+        // Descriptions are often repeated, so every distinct text is analyzed once
+        Map<String, DescriptionAnalysis> analyses = new HashMap<>();
+
+        for (IndexedRenderer renderer : index.renderers) {
+            renderers.add(new Renderer(renderer, analyses, localeCountry, language));
+        }
+
+        SortedMap<String, List<Renderer>> families = new TreeMap<>();
+        for (Map.Entry<String, int[]> family : index.familyPositions.entrySet()) {
+            List<Renderer> familyRenderers = new ArrayList<>(family.getValue().length);
+            for (int position : family.getValue()) {
+                familyRenderers.add(renderers.get(position));
+            }
+
+            families.put(family.getKey(), unmodifiableList(familyRenderers));
+        }
+
+        this.renderKitId = index.renderKitId;
+        this.language = language;
+        this.description = resolveDescription(index.renderKit, language);
+        this.renderers = unmodifiableList(renderers);
+        this.renderersByComponentFamily = unmodifiableSortedMap(families);
+    }
+
+    private RenderKitModel(String renderKitId, String language, String description, List<Renderer> renderers) {
+        this.renderKitId = renderKitId;
+        this.language = language;
+        this.description = description;
+        this.renderers = unmodifiableList(renderers);
+        this.renderersByComponentFamily = groupByComponentFamily(renderers);
+    }
+
+    private static SortedMap<String, List<Renderer>> groupByComponentFamily(List<Renderer> renderers) {
+        SortedMap<String, List<Renderer>> families = new TreeMap<>();
+        for (Renderer renderer : renderers) {
+            families.computeIfAbsent(renderer.getComponentFamily(), family -> new ArrayList<>()).add(renderer);
+        }
+
+        families.replaceAll((family, familyRenderers) -> unmodifiableList(familyRenderers));
+        return unmodifiableSortedMap(families);
+    }
+
+    /**
+     * Returns a model with all descriptions in the given language, or in no language for features without a
+     * description in the given language. Unlike the other constructors, the result does not depend on the
+     * default locale of the JVM.
+     *
+     * @param language the language, as in the <code>xml:lang</code> attributes of the descriptions
+     */
+    public static RenderKitModel forLanguage(FacesConfigBean configBean, String renderKitId, String language) {
+        return forLanguage(Index.of(configBean, renderKitId), language);
+    }
+
+    /**
+     * Returns a model like {@link #forLanguage(FacesConfigBean, String, String)}, from an index of the render kit
+     * that is shared with the models of the other languages. Only the descriptions are resolved.
+     */
+    public static RenderKitModel forLanguage(Index index, String language) {
+        return new RenderKitModel(index, null, language);
+    }
+
+    /**
+     * The part of the model of a render kit that does not depend on the language of the descriptions: the
+     * renderers in render kit order and grouped by component family, and their documented attributes. It is built
+     * once and shared by the models of all languages. Instances keep the parsed beans for resolving the
+     * descriptions, but do not expose them, and can be shared by concurrent generations.
+     */
+    public static final class Index {
+
+        private final String renderKitId;
+        private final RenderKitBean renderKit;
+        private final List<IndexedRenderer> renderers;
+        private final SortedMap<String, int[]> familyPositions;
+
+        private Index(String renderKitId, RenderKitBean renderKit, List<IndexedRenderer> renderers) {
+            SortedMap<String, List<Integer>> families = new TreeMap<>();
+            for (int i = 0; i < renderers.size(); i++) {
+                families.computeIfAbsent(renderers.get(i).bean.getComponentFamily(), family -> new ArrayList<>()).add(i);
+            }
+
+            SortedMap<String, int[]> familyPositions = new TreeMap<>();
+            families.forEach((family, positions) -> familyPositions.put(family, positions.stream().mapToInt(Integer::intValue).toArray()));
+
+            this.renderKitId = renderKitId;
+            this.renderKit = renderKit;
+            this.renderers = unmodifiableList(renderers);
+            this.familyPositions = unmodifiableSortedMap(familyPositions);
+        }
+
+        /**
+         * Builds the index of the render kit with the given id.
+         *
+         * @throws IllegalArgumentException when the faces config has no render kit with the given id
+         */
+        public static Index of(FacesConfigBean configBean, String renderKitId) {
+            RenderKitBean renderKit = configBean.getRenderKit(renderKitId);
+            if (renderKit == null) {
+                throw new IllegalArgumentException("No RenderKit for id '" + renderKitId + '\'');
+            }
+
+            RendererBean[] rendererBeans = renderKit.getRenderers();
+            if (rendererBeans == null) {
+                throw new IllegalStateException("No Renderers for RenderKit id" + '"' + renderKitId + '"');
+            }
+
+            List<IndexedRenderer> renderers = new ArrayList<>(rendererBeans.length);
+            for (int i = 0, len = rendererBeans.length; i < len; i++) {
+                if (rendererBeans[i] == null) {
+                    throw new IllegalStateException("null Renderer at index: " + i);
+                }
+
+                renderers.add(new IndexedRenderer(rendererBeans[i]));
+            }
+
+            return new Index(renderKitId, renderKit, renderers);
+        }
+
+        public String getRenderKitId() {
+            return renderKitId;
+        }
+    }
+
+    // A renderer of an index, with the attributes that are documented
+    private static final class IndexedRenderer {
+
+        final RendererBean bean;
+        final List<AttributeBean> attributes;
+        final boolean attributeTable;
+
+        IndexedRenderer(RendererBean bean) {
+            AttributeBean[] attributeBeans = bean.getAttributes();
+            List<AttributeBean> attributes = new ArrayList<>(attributeBeans == null ? 0 : attributeBeans.length);
+            if (attributeBeans != null) {
+                for (AttributeBean attributeBean : attributeBeans) {
+                    if (!attributeBean.isAttributeIgnoredForRenderer()) {
+                        attributes.add(attributeBean);
+                    }
+                }
+            }
+
+            this.bean = bean;
+            this.attributes = unmodifiableList(attributes);
+            this.attributeTable = (null == attributeBeans) || (0 < attributeBeans.length);
+        }
+    }
+
+    public String getRenderKitId() {
+        return renderKitId;
+    }
+
+    /**
+     * Returns the language of the descriptions, or <code>null</code> for descriptions without language.
+     */
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * Returns the description of the render kit, or an empty string if it has none.
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns all renderers, in the order of the render kit.
+     */
+    public List<Renderer> getRenderers() {
+        return renderers;
+    }
+
+    /**
+     * Returns the renderers grouped by component family, with the families in alphabetical order.
+     */
+    public SortedMap<String, List<Renderer>> getRenderersByComponentFamily() {
+        return renderersByComponentFamily;
+    }
+
+    /**
+     * Builds the model of a render kit whose renderers are read one at a time, keeping of every renderer only
+     * what the renderers frame and the render kit summary list. The renderers of the resulting model have no
+     * description or attributes.
+     */
+    static final class ListingBuilder {
+
+        private final String renderKitId;
+        private final String localeCountry;
+        private final String language;
+
+        // In the order of RenderKitBean, which sorts its renderers by family and type
+        private final SortedMap<String, Renderer> listing = new TreeMap<>();
+
+        // As for a whole model, every distinct description text is analyzed once
+        private final Map<String, DescriptionAnalysis> analyses = new HashMap<>();
+
+        ListingBuilder(String renderKitId, String language) {
+            this.renderKitId = renderKitId;
+            this.localeCountry = (language == null) ? Locale.getDefault().getCountry().toLowerCase() : null;
+            this.language = language;
+        }
+
+        /**
+         * Returns the complete renderer of the given bean, for generating its page, and keeps its listing.
+         *
+         * @throws IllegalStateException when the render kit already had a renderer of the same family and type,
+         * which the parser would merge into one
+         */
+        Renderer add(RendererBean bean) {
+            Renderer renderer = new Renderer(new IndexedRenderer(bean), analyses, localeCountry, language);
+            String key = renderer.getComponentFamily() + '|' + renderer.getRendererType();
+            if (listing.putIfAbsent(key, new Renderer(renderer)) != null) {
+                throw new IllegalStateException("Renderer " + key + " of RenderKit id '" + renderKitId
+                    + "' is declared more than once, which cannot be merged while streaming");
+            }
+
+            return renderer;
+        }
+
+        RenderKitModel build(RenderKitBean renderKit) {
+            return new RenderKitModel(renderKitId, language, resolveDescription(renderKit, language), new ArrayList<>(listing.values()));
+        }
+    }
+
+    static String resolveDescription(FeatureBean feature) {
+        DescriptionBean descBean = feature.getDescription("");
+        return (null == descBean) ? "" : descBean.getDescription();
+    }
+
+    /**
+     * Returns the description of the given feature in the given language, falling back to the one without
+     * language, or an empty string if it has none.
+     */
+    static String resolveDescription(FeatureBean feature, String language) {
+        DescriptionBean descBean = (null == language) ? null : feature.getDescription(language);
+        return (null == descBean) ? resolveDescription(feature) : descBean.getDescription();
+    }
+
+    /**
+     * A renderer of the render kit.
+     */
+    public static final class Renderer {
+
+        private final String componentFamily;
+        private final String rendererType;
+        private final String description;
+        private final String summary;
+        private final String enclosingTag;
+        private final String enclosingEndTag;
+        private final String fileName;
+        private final boolean rendersChildren;
+        private final boolean attributeTable;
+        private final List<Attribute> attributes;
+
+        Renderer(IndexedRenderer indexed, Map<String, DescriptionAnalysis> analyses, String localeCountry, String language) {
+            RendererBean bean = indexed.bean;
+            this.componentFamily = bean.getComponentFamily();
+            this.rendererType = bean.getRendererType();
+            this.description = resolveDescription(bean, language);
+            this.summary = analyses.computeIfAbsent(description, DescriptionAnalysis::analyze).getFirstSentence();
+
+            String localeDescription = (null == language) ? getLocaleDescription(bean, localeCountry) : getLanguageDescription(bean, language);
+            DescriptionAnalysis localeAnalysis = (null == localeDescription) ? DescriptionAnalysis.EMPTY
+                : analyses.computeIfAbsent(localeDescription, DescriptionAnalysis::analyze);
+            this.enclosingTag = localeAnalysis.getEnclosingTag();
+            this.enclosingEndTag = localeAnalysis.getEnclosingEndTag();
+
+            this.fileName = componentFamily + rendererType + ".html";
+            this.rendersChildren = bean.isRendersChildren();
+
+            List<Attribute> attributes = new ArrayList<>(indexed.attributes.size());
+            for (AttributeBean attributeBean : indexed.attributes) {
+                attributes.add(new Attribute(attributeBean, language));
+            }
+
+            this.attributeTable = indexed.attributeTable;
+            this.attributes = unmodifiableList(attributes);
+        }
+
+        // The listing of the given renderer only
+        private Renderer(Renderer renderer) {
+            this.componentFamily = renderer.componentFamily;
+            this.rendererType = renderer.rendererType;
+            this.description = "";
+            this.summary = renderer.summary;
+            this.enclosingTag = renderer.enclosingTag;
+            this.enclosingEndTag = renderer.enclosingEndTag;
+            this.fileName = renderer.fileName;
+            this.rendersChildren = renderer.rendersChildren;
+            this.attributeTable = renderer.attributeTable;
+            this.attributes = emptyList();
+        }
+
+        public String getComponentFamily() {
+            return componentFamily;
+        }
+
+        public String getRendererType() {
+            return rendererType;
+        }
+
+        /**
+         * Returns the description of the renderer, or an empty string if it has none.
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Returns the first sentence of the description, as shown in the render kit summary.
+         */
+        public String getSummary() {
+            return summary;
+        }
+
+        /**
+         * Returns the first <code>div</code> or <code>span</code> start tag of the description in the language
+         * of the locale of the model, or <code>null</code> if there is none.
+         */
+        public String getEnclosingTag() {
+            return enclosingTag;
+        }
+
+        /**
+         * Returns the end tag matching {@link #getEnclosingTag()}, or <code>null</code> if there is none.
+         */
+        public String getEnclosingEndTag() {
+            return enclosingEndTag;
+        }
+
+        public boolean isRendersChildren() {
+            return rendersChildren;
+        }
+
+        /**
+         * Returns the name of the generated page of the renderer, relative to the render kit directory.
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * Returns whether the page of the renderer has an attribute table. That is the case when the renderer
+         * declares attributes, even when they are all ignored for the renderer.
+         */
+        public boolean hasAttributeTable() {
+            return attributeTable;
+        }
+
+        /**
+         * Returns the documented attributes, which are those not ignored for the renderer.
+         */
+        public List<Attribute> getAttributes() {
+            return attributes;
+        }
+    }
+
+    // The first description whose language occurs in the country of the locale; any description without language
+    private static String getLocaleDescription(RendererBean bean, String localeCountry) {
+        DescriptionBean[] descriptions = bean.getDescriptions();
+        if (descriptions != null) {
+            for (DescriptionBean description : descriptions) {
+                if (description.getLang() != null && (-1 != localeCountry.indexOf(description.getLang().toLowerCase()))) {
+                    return bean.getDescription(description.getLang()).getDescription();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    // Only a description in exactly the language, not the fallback without language
+    private static String getLanguageDescription(RendererBean bean, String language) {
+        DescriptionBean description = bean.getDescription(language);
+        return (null == description) ? null : description.getDescription();
+    }
+
+    /**
+     * A documented attribute of a renderer.
+     */
+    public static final class Attribute {
+
+        private final String attributeName;
+        private final String attributeClass;
+        private final boolean passThrough;
+        private final String defaultValue;
+        private final String description;
+
+        Attribute(AttributeBean bean, String language) {
+            this.attributeName = bean.getAttributeName();
+            this.attributeClass = bean.getAttributeClass();
+            this.passThrough = bean.isPassThrough();
+            this.defaultValue = bean.getDefaultValue();
+            this.description = resolveDescription(bean, language);
+        }
+
+        public String getAttributeName() {
+            return attributeName;
+        }
+
+        public String getAttributeClass() {
+            return attributeClass;
+        }
+
+        public boolean isPassThrough() {
+            return passThrough;
+        }
+
+        /**
+         * Returns the default value of the attribute, or <code>null</code> if it has none.
+         */
+        public String getDefaultValue() {
+            return defaultValue;
+        }
+
+        /**
+         * Returns the description of the attribute, or an empty string if it has none.
+         */
+        public String getDescription() {
+            return description;
+        }
+    }
+
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.omnifaces.facesconfigparser.digester.beans.DescriptionBean;
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+import org.omnifaces.facesconfigparser.digester.beans.RenderKitBean;
+import org.omnifaces.facesconfigparser.digester.beans.RendererBean;
+
+/**
+ * Generates one doc set for the render kits of all modules of the reactor.
+ * <p>
+ * The faces-config files are those configured for this plugin in the reactor projects, by their
+ * <code>facesConfig</code> and <code>schemaDirectory</code> parameters. They are parsed concurrently, and the
+ * renderers of render kits with the same id are merged into one render kit, in reactor order. When several
+ * modules define the same component family and renderer type in a render kit, the first one is kept and the
+ * conflict is reported.
+ * <p>
+ * Every render kit is generated into its own subdirectory, as a complete doc set laid out as for a single render
+ * kit, so its renderer pages are in <code>renderkitdoc/&lt;id&gt;/&lt;id&gt;/</code>.
+ */
+@Mojo(name = "aggregate", aggregator = true)
+public class RenderkitAggregateMojo extends AbstractRenderkitMojo {
+
+    private static final String PLUGIN_KEY = "org.omnifaces:renderkitdoc-maven-plugin";
+
+    @Parameter(defaultValue = "${reactorProjects}", readonly = true, required = true)
+    private List<MavenProject> reactorProjects;
+
+    /**
+     * Ids of the render kits to generate. Defaults to all render kits of all modules.
+     */
+    @Parameter(property = "renderKitIds")
+    private List<String> renderKitIds;
+
+    /**
+     * Fail the build when modules define the same component family and renderer type in a render kit.
+     */
+    @Parameter(property = "failOnConflict", defaultValue = "false")
+    private boolean failOnConflict;
+
+    private List<Source> sources;
+
+    @Override
+    protected String describeInput() {
+        return "faces config files of " + getSources().size() + " reactor projects";
+    }
+
+    @Override
+    void addInput(InputFingerprint fingerprint) throws IOException {
+        for (Source source : getSources()) {
+            fingerprint
+                .addString(source.projectId)
+                .addFile(new File(source.facesConfig))
+                .addDirectory(source.schemaDirectory == null ? null : new File(source.schemaDirectory));
+        }
+
+        fingerprint.addString(String.valueOf(renderKitIds));
+    }
+
+    @Override
+    protected FacesConfigBean parseInput() throws MojoExecutionException, MojoFailureException {
+        List<Source> sources = getSources();
+        if (sources.isEmpty()) {
+            throw new MojoExecutionException("No reactor project configures a facesConfig for " + PLUGIN_KEY);
+        }
+
+        return merge(sources, parseAll(sources));
+    }
+
+    @Override
+    protected String getRenderKitId() {
+        return RenderKitDocGenerator.DEFAULT_RENDER_KIT_ID;
+    }
+
+    @Override
+    protected List<String> getRenderKitIds() {
+        return (renderKitIds != null) ? renderKitIds : new ArrayList<>();
+    }
+
+    private List<Source> getSources() {
+        if (sources == null) {
+            sources = new ArrayList<>();
+            for (MavenProject reactorProject : reactorProjects) {
+                Source source = Source.of(reactorProject);
+                if (source != null) {
+                    sources.add(source);
+                }
+            }
+        }
+
+        return sources;
+    }
+
+    /**
+     * Parses the faces-config files of the given sources, in the order of the sources.
+     * <p>
+     * The parser resolves schemas through state shared by all parsers, so only files validated against the
+     * same schema directory are parsed concurrently.
+     */
+    private List<FacesConfigBean> parseAll(List<Source> sources) throws MojoExecutionException {
+        Map<String, List<Integer>> sourcesBySchemaDirectory = new LinkedHashMap<>();
+        for (int i = 0; i < sources.size(); i++) {
+            sourcesBySchemaDirectory.computeIfAbsent(String.valueOf(sources.get(i).schemaDirectory), dir -> new ArrayList<>()).add(i);
+        }
+
+        FacesConfigBean[] parsed = new FacesConfigBean[sources.size()];
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(getThreads(), sources.size())));
+        try {
+            for (List<Integer> group : sourcesBySchemaDirectory.values()) {
+                List<Future<FacesConfigBean>> results = new ArrayList<>(group.size());
+                for (int index : group) {
+                    Source source = sources.get(index);
+                    results.add(executor.submit(() -> parse(source.facesConfig, source.schemaDirectory)));
+                }
+
+                for (int i = 0; i < group.size(); i++) {
+                    parsed[group.get(i)] = results.get(i).get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while parsing faces config files", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Could not parse faces config file: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<FacesConfigBean> result = new ArrayList<>(parsed.length);
+        for (FacesConfigBean configBean : parsed) {
+            result.add(configBean);
+        }
+
+        return result;
+    }
+
+    /**
+     * Merges the render kits of the given parsed files per render kit id. The parsed beans are not modified,
+     * since they may be shared through the parse cache.
+     */
+    private FacesConfigBean merge(List<Source> sources, List<FacesConfigBean> parsed) throws MojoFailureException {
+        Map<String, RenderKitBean> mergedKits = new LinkedHashMap<>();
+        Map<String, String> rendererOwners = new LinkedHashMap<>();
+        int conflicts = 0;
+
+        for (int i = 0; i < sources.size(); i++) {
+            RenderKitBean[] renderKits = parsed.get(i).getRenderKits();
+            if (renderKits == null) {
+                continue;
+            }
+
+            String projectId = sources.get(i).projectId;
+            for (RenderKitBean renderKit : renderKits) {
+                RenderKitBean mergedKit = mergedKits.computeIfAbsent(renderKit.getRenderKitId(), id -> newRenderKit(renderKit));
+                if (mergedKit.getDescriptions() == null || mergedKit.getDescriptions().length == 0) {
+                    copyDescriptions(renderKit, mergedKit);
+                }
+
+                RendererBean[] renderers = renderKit.getRenderers();
+                if (renderers == null) {
+                    continue;
+                }
+
+                for (RendererBean renderer : renderers) {
+                    String key = renderKit.getRenderKitId() + " " + renderer.getComponentFamily() + "|" + renderer.getRendererType();
+                    String owner = rendererOwners.putIfAbsent(key, projectId);
+                    if (owner == null) {
+                        mergedKit.addRenderer(renderer);
+                    } else {
+                        conflicts++;
+                        getLog().warn("Renderer " + renderer.getComponentFamily() + "|" + renderer.getRendererType()
+                            + " of render kit " + renderKit.getRenderKitId() + " in " + projectId
+                            + " is already defined in " + owner + ", keeping the one of " + owner);
+                    }
+                }
+            }
+        }
+
+        if (conflicts > 0 && failOnConflict) {
+            throw new MojoFailureException(conflicts + " conflicting renderers in the faces config files of the reactor");
+        }
+
+        FacesConfigBean merged = new FacesConfigBean();
+        for (RenderKitBean mergedKit : mergedKits.values()) {
+            merged.addRenderKit(mergedKit);
+        }
+
+        return merged;
+    }
+
+    private static RenderKitBean newRenderKit(RenderKitBean renderKit) {
+        RenderKitBean mergedKit = new RenderKitBean();
+        mergedKit.setRenderKitId(renderKit.getRenderKitId());
+        mergedKit.setRenderKitClass(renderKit.getRenderKitClass());
+        return mergedKit;
+    }
+
+    private static void copyDescriptions(RenderKitBean from, RenderKitBean to) {
+        DescriptionBean[] descriptions = from.getDescriptions();
+        if (descriptions != null) {
+            for (DescriptionBean description : descriptions) {
+                to.addDescription(description);
+            }
+        }
+    }
+
+    /**
+     * The faces-config file configured for this plugin in a reactor project.
+     */
+    private static final class Source {
+
+        private final String projectId;
+        private final String facesConfig;
+        private final String schemaDirectory;
+
+        private Source(String projectId, String facesConfig, String schemaDirectory) {
+            this.projectId = projectId;
+            this.facesConfig = facesConfig;
+            this.schemaDirectory = schemaDirectory;
+        }
+
+        /**
+         * Returns the source configured in the given project, or <code>null</code> if it has none. The plugin
+         * configuration takes precedence over the configuration of its executions, which are taken in order.
+         */
+        static Source of(MavenProject project) {
+            Plugin plugin = project.getPlugin(PLUGIN_KEY);
+            if (plugin == null) {
+                return null;
+            }
+
+            List<Object> configurations = new ArrayList<>();
+            configurations.add(plugin.getConfiguration());
+            for (PluginExecution execution : plugin.getExecutions()) {
+                configurations.add(execution.getConfiguration());
+            }
+
+            String facesConfig = null;
+            String schemaDirectory = null;
+            for (Object configuration : configurations) {
+                if (facesConfig == null) {
+                    facesConfig = getValue(configuration, "facesConfig");
+                }
+                if (schemaDirectory == null) {
+                    schemaDirectory = getValue(configuration, "schemaDirectory");
+                }
+            }
+
+            if (facesConfig == null) {
+                return null;
+            }
+
+            return new Source(project.getId(), resolve(project, facesConfig), (schemaDirectory == null) ? null : resolve(project, schemaDirectory));
+        }
+
+        private static String getValue(Object configuration, String name) {
+            if (!(configuration instanceof Xpp3Dom)) {
+                return null;
+            }
+
+            Xpp3Dom child = ((Xpp3Dom) configuration).getChild(name);
+            String value = (child == null) ? null : child.getValue();
+            return (value == null || value.trim().isEmpty()) ? null : value.trim();
+        }
+
+        private static String resolve(MavenProject project, String path) {
+            File file = new File(path);
+            return (file.isAbsolute() ? file : new File(project.getBasedir(), path)).getPath();
+        }
+    }
+
+}
@@ -15,60 +15,107 @@
  */
 package org.omnifaces.renderkitdoc;
 
-import static org.omnifaces.facesconfigparser.FacesConfigParser.parseFacesConfig;
-
 import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
-import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.apache.maven.project.MavenProject;
 import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
-import org.sonatype.plexus.build.incremental.BuildContext;
 
 @Mojo(name = "generate")
-public class RenderkitMojo extends AbstractMojo {
-
-    @Component
-    private BuildContext buildContext;
-
-    @Parameter(defaultValue = "${project}", readonly = true, required = true)
-    private MavenProject project;
+public class RenderkitMojo extends AbstractRenderkitMojo {
 
     @Parameter(property = "renderKitId", defaultValue = "HTML_BASIC")
     private String renderKitId;
 
+    /**
+     * Ids of several render kits to generate in one execution, each into its own subdirectory with an index
+     * page linking them. When set, <code>renderKitId</code> is ignored.
+     * <p>
+     * Every subdirectory is a complete doc set with its own assets, laid out as for a single render kit, so the
+     * renderer pages are in <code>renderkitdoc/&lt;id&gt;/&lt;id&gt;/</code>.
+     */
+    @Parameter(property = "renderKitIds")
+    private List<String> renderKitIds;
+
+    /**
+     * Generate all render kits in the faces config file, each into its own subdirectory with an index page
+     * linking them, laid out as for <code>renderKitIds</code>. When set, <code>renderKitId</code> and
+     * <code>renderKitIds</code> are ignored.
+     */
+    @Parameter(property = "allRenderKits", defaultValue = "false")
+    private boolean allRenderKits;
+
     @Parameter(property = "facesConfig", required = true)
     private String facesConfig;
 
     @Parameter(property = "schemaDirectory")
     private String schemaDirectory;
 
-    @Parameter(property = "project.build.directory")
-    private File outputDirectory;
+    /**
+     * Read the renderers of the render kit with a pull parser and write every renderer page as soon as it is
+     * read, keeping only the listing of the renderers in memory, instead of parsing the whole faces config file
+     * first. For very large faces config files. The file is not validated against the schemas, the parse cache
+     * is not used and the pages are written by one thread. Not supported with several render kits, languages,
+     * <code>searchIndex</code> or <code>sharedAttributeTables</code>, which parse the whole file instead.
+     * <p>
+     * A renderer declared more than once in the render kit cannot be merged while streaming. The generation then
+     * fails at the second declaration, after the pages of the renderers before it are written, leaving the
+     * renderers frame, the summary and the other pages of the previous run in place. Generate such a file
+     * without streaming.
+     */
+    @Parameter(property = "streaming", defaultValue = "false")
+    private boolean streaming;
 
     @Override
-    public void execute() throws MojoExecutionException {
-        getLog().info(
-            "Generating RenderKitDoc for faces config file: " + new File(facesConfig).toString());
-
-        getLog().info(
-            "Output directory: " + outputDirectory.toString() + "/renderkitdoc");
+    protected String describeInput() {
+        return "faces config file: " + new File(facesConfig).toString();
+    }
 
-        // Parses a faces-config.xml file into a set of tree of Java classes
-        FacesConfigBean facesConfigRoot = parseFacesConfig(facesConfig, schemaDirectory);
+    @Override
+    void addInput(InputFingerprint fingerprint) throws IOException {
+        fingerprint
+            .addFile(new File(facesConfig))
+            .addDirectory(schemaDirectory == null ? null : new File(schemaDirectory))
+            .addString(renderKitId)
+            .addString(String.valueOf(renderKitIds))
+            .addString(String.valueOf(allRenderKits))
+            .addString(String.valueOf(streaming));
+    }
 
-        // Generates HTML docs from the parsed faces config file
-        RenderKitDocGenerator renderKitDocGenerator = new RenderKitDocGenerator(outputDirectory.toString(), renderKitId);
+    @Override
+    protected FacesConfigBean parseInput() throws MojoExecutionException {
+        return parse(facesConfig, schemaDirectory);
+    }
 
-        renderKitDocGenerator.generateHtmlDocs(facesConfigRoot);
+    @Override
+    protected String getRenderKitId() {
+        return renderKitId;
+    }
 
-        for (File file : renderKitDocGenerator.getFilesTouched()) {
-            getLog().info("Refreshing: " + file.toString());
-            buildContext.refresh(file);
+    @Override
+    protected List<String> getRenderKitIds() {
+        if (allRenderKits) {
+            return Collections.emptyList();
         }
+
+        return (renderKitIds != null && !renderKitIds.isEmpty()) ? renderKitIds : null;
+    }
+
+    @Override
+    File getStreamingFacesConfig() {
+        return streaming ? new File(facesConfig) : null;
+    }
+
+    String getFacesConfig() {
+        return facesConfig;
+    }
+
+    String getSchemaDirectory() {
+        return schemaDirectory;
     }
 
-}
\ No newline at end of file
+}
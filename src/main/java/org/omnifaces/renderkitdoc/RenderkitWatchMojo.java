@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+
+/**
+ * Generates the docs like the <code>generate</code> goal, and then keeps watching the faces config file, the
+ * schema directory and the template directory until it is stopped with Ctrl-C.
+ * <p>
+ * On every change of the faces config file or a schema, the faces config file is parsed again and compared with
+ * the render kit models kept in memory, and only the docs affected by the changes are generated again. A change
+ * of a template generates all docs again. The docs are always written as files without language, also when
+ * <code>archive</code> or <code>languages</code> are set.
+ */
+@Mojo(name = "watch")
+public class RenderkitWatchMojo extends RenderkitMojo {
+
+    /**
+     * Milliseconds to wait for more changes after a change, so an editor saving a file in several steps causes
+     * only one generation.
+     */
+    @Parameter(property = "watchDelay", defaultValue = "100")
+    private long watchDelay;
+
+    private MultiRenderKitDocGenerator multiRenderKitDocGenerator;
+    private RenderKitDocGenerator renderKitDocGenerator;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        Path facesConfig = new File(getFacesConfig()).getAbsoluteFile().toPath();
+        Path schemaDirectory = (getSchemaDirectory() == null) ? null : new File(getSchemaDirectory()).getAbsoluteFile().toPath();
+        Path templateDirectory = (getTemplateDirectory() == null) ? null : getTemplateDirectory().getAbsoluteFile().toPath();
+
+        // The output no longer matches the fingerprint of the generate goal once the input is edited
+        new File(getDocDirectory(), InputFingerprint.FINGERPRINT_FILE).delete();
+
+        if (getRenderKitIds() != null) {
+            multiRenderKitDocGenerator = newMultiRenderKitDocGenerator(getDocDirectory(), new GenerationMetrics(), null);
+        } else {
+            renderKitDocGenerator = newRenderKitDocGenerator(getDocDirectory(), new GenerationMetrics(), null);
+        }
+
+        getLog().info("Generating RenderKitDoc for " + describeInput());
+        generate(true);
+
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            Map<WatchKey, Path> directories = new HashMap<>();
+            register(watchService, facesConfig.getParent(), directories);
+            register(watchService, schemaDirectory, directories);
+            register(watchService, templateDirectory, directories);
+
+            getLog().info("Watching " + directories.values() + " for changes, press Ctrl-C to stop");
+
+            while (true) {
+                boolean inputChanged = false;
+                boolean templatesChanged = false;
+
+                // Collects the events until none came in for the delay
+                for (WatchKey key = watchService.take(); key != null; key = watchService.poll(watchDelay, MILLISECONDS)) {
+                    Path directory = directories.get(key);
+
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            inputChanged = true;
+                            continue;
+                        }
+
+                        Path changed = directory.resolve((Path) event.context());
+                        if (templateDirectory != null && changed.startsWith(templateDirectory)) {
+                            templatesChanged = true;
+                        } else if (changed.equals(facesConfig) || (schemaDirectory != null && changed.startsWith(schemaDirectory))) {
+                            inputChanged = true;
+                        }
+                    }
+
+                    key.reset();
+                }
+
+                if (templatesChanged || inputChanged) {
+                    generate(templatesChanged);
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not watch " + describeInput() + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void register(WatchService watchService, Path directory, Map<WatchKey, Path> directories) throws IOException {
+        if (directory != null && !directories.containsValue(directory) && directory.toFile().isDirectory()) {
+            directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+        }
+    }
+
+    /**
+     * Parses the input and generates all docs, or only those affected by the changes since the previous
+     * generation. Failures are logged, so that watching goes on and the next change can fix them.
+     */
+    private void generate(boolean all) {
+        GenerationMetrics metrics = new GenerationMetrics();
+        long start = System.nanoTime();
+
+        List<File> filesTouched;
+        try {
+            FacesConfigBean facesConfigRoot = parseInput();
+            metrics.addTime(GenerationMetrics.PARSE, start);
+
+            if (multiRenderKitDocGenerator != null) {
+                multiRenderKitDocGenerator.setMetrics(metrics);
+                if (all) {
+                    multiRenderKitDocGenerator.generateHtmlDocs(facesConfigRoot);
+                } else {
+                    multiRenderKitDocGenerator.generateChangedDocs(facesConfigRoot);
+                }
+                filesTouched = multiRenderKitDocGenerator.getFilesTouched();
+            } else {
+                renderKitDocGenerator.setMetrics(metrics);
+                if (all) {
+                    renderKitDocGenerator.generateHtmlDocs(facesConfigRoot);
+                } else {
+                    renderKitDocGenerator.generateChangedDocs(facesConfigRoot);
+                }
+                filesTouched = renderKitDocGenerator.getFilesTouched();
+            }
+        } catch (MojoExecutionException | RuntimeException e) {
+            getLog().error("Could not generate RenderKitDoc: " + e.getMessage(), e);
+            return;
+        }
+
+        for (File file : filesTouched) {
+            if (getLog().isDebugEnabled()) {
+                getLog().debug("Refreshing: " + file.toString());
+            }
+            getBuildContext().refresh(file);
+        }
+
+        metrics.addTime(GenerationMetrics.TOTAL, start);
+        getLog().info(metrics.toSummary());
+    }
+
+}
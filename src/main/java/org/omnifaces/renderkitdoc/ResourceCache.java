@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory cache of the resources bundled with the plugin, such as the static files and the page templates.
+ * <p>
+ * Every resource is read from the class loader once per JVM, so the many executions of the plugin in one
+ * reactor build don't open and decode the same resources again.
+ */
+final class ResourceCache {
+
+    private static final Map<String, byte[]> bytesCache = new ConcurrentHashMap<>();
+    private static final Map<String, String> stringCache = new ConcurrentHashMap<>();
+
+    private ResourceCache() {
+    }
+
+    /**
+     * Returns the content of the given resource. The returned array is shared and must not be modified.
+     *
+     * @throws IllegalArgumentException when there is no such resource
+     */
+    static byte[] getBytes(String resourceName) {
+        return bytesCache.computeIfAbsent(resourceName, ResourceCache::load);
+    }
+
+    /**
+     * Returns the content of the given resource decoded as UTF-8.
+     *
+     * @throws IllegalArgumentException when there is no such resource
+     */
+    static String getString(String resourceName) {
+        return stringCache.computeIfAbsent(resourceName, name -> new String(getBytes(name), UTF_8));
+    }
+
+    private static byte[] load(String resourceName) {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = ResourceCache.class.getClassLoader();
+        }
+
+        try (InputStream in = loader.getResourceAsStream(resourceName)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No resource '" + resourceName + "'");
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+            byte[] buffer = new byte[8192];
+            for (int len = in.read(buffer); len != -1; len = in.read(buffer)) {
+                bytes.write(buffer, 0, len);
+            }
+
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
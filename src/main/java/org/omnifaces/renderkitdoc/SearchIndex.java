@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.omnifaces.renderkitdoc.RenderKitModel.Attribute;
+import org.omnifaces.renderkitdoc.RenderKitModel.Renderer;
+
+/**
+ * Client-side navigation and search index of the renderers of a render kit, split into shards.
+ * <p>
+ * Component families are added in the order they are listed, while the renderers frame is generated. A family is
+ * never split; a new shard is started when the current one holds at least the shard size in renderers. The index
+ * and the shards are JavaScript files calling <code>renderkitdocSearch</code> of the bundled
+ * <code>renderkitdoc-search.js</code>.
+ */
+final class SearchIndex {
+
+    static final String INDEX_FILE = "search-index.js";
+    static final int DEFAULT_SHARD_SIZE = 100;
+
+    private final String renderKitId;
+    private final int shardSize;
+
+    private final StringBuilder families = new StringBuilder();
+    private final List<StringBuilder> shards = new ArrayList<>();
+    private int familyCount;
+    private int shardRendererCount;
+
+    SearchIndex(String renderKitId, int shardSize) {
+        this.renderKitId = renderKitId;
+        this.shardSize = shardSize;
+    }
+
+    /**
+     * Adds the given component family with its renderers, and returns the index of the family.
+     */
+    int addFamily(String componentFamily, List<Renderer> renderers) {
+        if (shards.isEmpty() || shardRendererCount >= shardSize) {
+            shards.add(new StringBuilder());
+            shardRendererCount = 0;
+        }
+
+        StringBuilder shard = shards.get(shards.size() - 1);
+        for (Renderer renderer : renderers) {
+            shard.append(shard.length() == 0 ? "\n[" : ",\n[");
+            appendString(shard, componentFamily).append(',');
+            appendString(shard, renderer.getRendererType()).append(',');
+            appendString(shard, renderer.getFileName()).append(",[");
+
+            String separator = "";
+            for (Attribute attribute : renderer.getAttributes()) {
+                appendString(shard.append(separator), attribute.getAttributeName());
+                separator = ",";
+            }
+
+            shard.append("]]");
+        }
+        shardRendererCount += renderers.size();
+
+        families.append(familyCount == 0 ? "\n[" : ",\n[");
+        appendString(families, componentFamily).append(',').append(shards.size() - 1).append(']');
+
+        return familyCount++;
+    }
+
+    static String getShardFile(int shard) {
+        return "search-index-" + shard + ".js";
+    }
+
+    int getShardCount() {
+        return shards.size();
+    }
+
+    String getIndexScript() {
+        StringBuilder script = new StringBuilder(families.length() + 128).append("renderkitdocSearch.init({\"renderKitId\":");
+        appendString(script, renderKitId).append(",\"shards\":[");
+
+        for (int i = 0; i < shards.size(); i++) {
+            appendString(script.append(i == 0 ? "" : ","), getShardFile(i));
+        }
+
+        return script.append("],\"families\":[").append(families).append("]});\n").toString();
+    }
+
+    String getShardScript(int shard) {
+        StringBuilder renderers = shards.get(shard);
+        return new StringBuilder(renderers.length() + 48)
+            .append("renderkitdocSearch.shard(").append(shard).append(",[").append(renderers).append("]);\n")
+            .toString();
+    }
+
+    // A JavaScript string literal, that can also not end a script element, and that is valid JSON as well
+    static StringBuilder appendString(StringBuilder script, String value) {
+        script.append('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': script.append("\\\""); break;
+                case '\\': script.append("\\\\"); break;
+                case '\n': script.append("\\n"); break;
+                case '\r': script.append("\\r"); break;
+                case '<': script.append("\\u003c"); break;
+                default:
+                    if (c < ' ' || c == '\u2028' || c == '\u2029') {
+                        script.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        script.append(c);
+                    }
+            }
+        }
+
+        return script.append('"');
+    }
+
+}
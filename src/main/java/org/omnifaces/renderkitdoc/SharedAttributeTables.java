@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.omnifaces.renderkitdoc.RenderKitModel.Attribute;
+import org.omnifaces.renderkitdoc.RenderKitModel.Renderer;
+
+/**
+ * Attribute tables shared by several renderers, to be written once as fragment pages the renderer pages link to.
+ * <p>
+ * Attributes are compared by the content of their row in the table. The rows are grouped by the exact set of
+ * renderers that have them, and every group of at least {@value #MIN_SHARED_ATTRIBUTES} rows shared by at least two
+ * renderers becomes a fragment, named after the content hash of its rows. A renderer can so link to several
+ * fragments, for instance one with the pass-through attributes of all renderers and one with the attributes it
+ * only shares with a few of them. The other attributes of a renderer stay on its own page.
+ */
+final class SharedAttributeTables {
+
+    static final int MIN_SHARED_ATTRIBUTES = 5;
+
+    private final Map<Renderer, List<Fragment>> fragmentsByRenderer = new IdentityHashMap<>();
+    private final List<Fragment> fragments = new ArrayList<>();
+
+    private SharedAttributeTables() {
+    }
+
+    static SharedAttributeTables plan(List<Renderer> renderers) {
+        // The positions of the renderers having a row, in the order of the first renderer having it
+        Map<String, Set<Integer>> rendererPositions = new LinkedHashMap<>();
+        Map<String, Attribute> attributes = new HashMap<>();
+
+        for (int position = 0; position < renderers.size(); position++) {
+            for (Attribute attribute : renderers.get(position).getAttributes()) {
+                String rowKey = getRowKey(attribute);
+                rendererPositions.computeIfAbsent(rowKey, key -> new LinkedHashSet<>()).add(position);
+                attributes.putIfAbsent(rowKey, attribute);
+            }
+        }
+
+        // Rows having the same renderers form one group, in the order of their first row
+        Map<Set<Integer>, List<String>> groups = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<Integer>> row : rendererPositions.entrySet()) {
+            if (row.getValue().size() > 1) {
+                groups.computeIfAbsent(row.getValue(), key -> new ArrayList<>()).add(row.getKey());
+            }
+        }
+
+        SharedAttributeTables tables = new SharedAttributeTables();
+        for (Map.Entry<Set<Integer>, List<String>> group : groups.entrySet()) {
+            if (group.getValue().size() < MIN_SHARED_ATTRIBUTES) {
+                continue;
+            }
+
+            InputFingerprint hash = new InputFingerprint();
+            List<Attribute> shared = new ArrayList<>(group.getValue().size());
+            for (String rowKey : group.getValue()) {
+                hash.addString(rowKey);
+                shared.add(attributes.get(rowKey));
+            }
+
+            Fragment fragment = new Fragment(hash.toHex(), shared);
+            for (int position : group.getKey()) {
+                Renderer renderer = renderers.get(position);
+                fragment.renderers.add(renderer);
+                tables.fragmentsByRenderer.computeIfAbsent(renderer, key -> new ArrayList<>()).add(fragment);
+            }
+
+            tables.fragments.add(fragment);
+        }
+
+        return tables;
+    }
+
+    /**
+     * Returns the fragments, in the order of the first row they have.
+     */
+    List<Fragment> getFragments() {
+        return fragments;
+    }
+
+    /**
+     * Returns the fragments with the shared attributes of the given renderer, which are empty if all its
+     * attributes are on its own page.
+     */
+    List<Fragment> getFragments(Renderer renderer) {
+        return fragmentsByRenderer.getOrDefault(renderer, Collections.emptyList());
+    }
+
+    /**
+     * Returns the attributes of the given renderer that are not in any of its fragments.
+     */
+    List<Attribute> getOwnAttributes(Renderer renderer) {
+        List<Fragment> rendererFragments = getFragments(renderer);
+        if (rendererFragments.isEmpty()) {
+            return renderer.getAttributes();
+        }
+
+        Set<String> sharedRows = new HashSet<>();
+        for (Fragment fragment : rendererFragments) {
+            for (Attribute attribute : fragment.attributes) {
+                sharedRows.add(getRowKey(attribute));
+            }
+        }
+
+        List<Attribute> own = new ArrayList<>();
+        for (Attribute attribute : renderer.getAttributes()) {
+            if (!sharedRows.contains(getRowKey(attribute))) {
+                own.add(attribute);
+            }
+        }
+
+        return own;
+    }
+
+    // Everything that is written in the row of the attribute
+    private static String getRowKey(Attribute attribute) {
+        return attribute.getAttributeName() + '\0' + attribute.getAttributeClass() + '\0' + attribute.isPassThrough()
+            + '\0' + attribute.getDefaultValue() + '\0' + attribute.getDescription();
+    }
+
+    /**
+     * An attribute table shared by several renderers.
+     */
+    static final class Fragment {
+
+        private final String fileName;
+        private final List<Attribute> attributes;
+        private final List<Renderer> renderers = new ArrayList<>();
+
+        Fragment(String hash, List<Attribute> attributes) {
+            this.fileName = "shared-attributes-" + hash.substring(0, 16) + ".html";
+            this.attributes = attributes;
+        }
+
+        /**
+         * Returns the name of the fragment page, relative to the render kit directory.
+         */
+        String getFileName() {
+            return fileName;
+        }
+
+        List<Attribute> getAttributes() {
+            return attributes;
+        }
+
+        List<Renderer> getRenderers() {
+            return renderers;
+        }
+    }
+
+}
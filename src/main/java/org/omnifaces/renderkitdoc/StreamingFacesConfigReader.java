@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.omnifaces.facesconfigparser.digester.beans.AttributeBean;
+import org.omnifaces.facesconfigparser.digester.beans.DescriptionBean;
+import org.omnifaces.facesconfigparser.digester.beans.FeatureBean;
+import org.omnifaces.facesconfigparser.digester.beans.RenderKitBean;
+import org.omnifaces.facesconfigparser.digester.beans.RendererBean;
+
+/**
+ * Reads the renderers of one render kit of a faces-config.xml file with a pull parser, handing every renderer to
+ * the caller as soon as its element is complete, so the memory used does not grow with the faces-config file.
+ * <p>
+ * The renderers, attributes and descriptions are read into the same beans, with the same values, as the
+ * faces-config parser reads them into, except that the file is not validated against the schemas and that a
+ * renderer declared more than once is not merged: every declaration is handed to the caller. Streaming generation
+ * rejects the second declaration with an {@link IllegalStateException}, once the pages of the renderers read
+ * before it are already written.
+ */
+final class StreamingFacesConfigReader {
+
+    /**
+     * Receives the renderers of the render kit, in the order of the file.
+     */
+    @FunctionalInterface
+    interface RendererHandler {
+        void handle(RendererBean renderer) throws Exception;
+    }
+
+    private final File facesConfig;
+    private final String renderKitId;
+
+    StreamingFacesConfigReader(File facesConfig, String renderKitId) {
+        this.facesConfig = facesConfig;
+        this.renderKitId = renderKitId;
+    }
+
+    /**
+     * Reads the render kit, handing its renderers to the given handler.
+     *
+     * @return the render kit with its descriptions, but without its renderers
+     * @throws IllegalArgumentException when the file has no render kit with the id of this reader
+     */
+    RenderKitBean read(RendererHandler handler) throws Exception {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+
+        RenderKitBean result = null;
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(facesConfig))) {
+            XMLStreamReader reader = factory.createXMLStreamReader(facesConfig.toURI().toString(), in);
+            try {
+                reader.nextTag();
+                if (!"faces-config".equals(reader.getLocalName())) {
+                    throw new IOException("Not a faces config file: " + facesConfig);
+                }
+
+                while (reader.nextTag() == START_ELEMENT) {
+                    if ("render-kit".equals(reader.getLocalName())) {
+                        result = readRenderKit(reader, handler, result);
+                    } else {
+                        skipElement(reader);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not read faces config file " + facesConfig + ": " + e.getMessage(), e);
+        }
+
+        if (result == null) {
+            throw new IllegalArgumentException("No RenderKit for id '" + renderKitId + '\'');
+        }
+
+        return result;
+    }
+
+    // The descriptions of every render-kit element with the id are added to the result, like the parser merges them
+    private RenderKitBean readRenderKit(XMLStreamReader reader, RendererHandler handler, RenderKitBean result) throws Exception {
+        RenderKitBean renderKit = new RenderKitBean();
+
+        while (reader.nextTag() == START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "description": readDescription(reader, renderKit); break;
+                case "render-kit-id": renderKit.setRenderKitId(readText(reader)); break;
+                case "render-kit-class": renderKit.setRenderKitClass(readText(reader)); break;
+                case "renderer":
+                    if (renderKitId.equals(renderKit.getRenderKitId())) {
+                        handler.handle(readRenderer(reader));
+                    } else {
+                        skipElement(reader);
+                    }
+                    break;
+                default: skipElement(reader);
+            }
+        }
+
+        if (!renderKitId.equals(renderKit.getRenderKitId())) {
+            return result;
+        }
+
+        if (result == null) {
+            return renderKit;
+        }
+
+        if (renderKit.getRenderKitClass() != null) {
+            result.setRenderKitClass(renderKit.getRenderKitClass());
+        }
+        mergeDescriptions(renderKit, result);
+        return result;
+    }
+
+    private RendererBean readRenderer(XMLStreamReader reader) throws XMLStreamException {
+        RendererBean renderer = new RendererBean();
+
+        while (reader.nextTag() == START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "description": readDescription(reader, renderer); break;
+                case "component-family": renderer.setComponentFamily(readText(reader)); break;
+                case "renderer-class": renderer.setRendererClass(readText(reader)); break;
+                case "renderer-type": renderer.setRendererType(readText(reader)); break;
+                case "attribute":
+                    AttributeBean attribute = readAttribute(reader);
+                    AttributeBean existing = renderer.getAttribute(attribute.getAttributeName());
+                    if (existing == null) {
+                        renderer.addAttribute(attribute);
+                    } else {
+                        mergeAttribute(attribute, existing);
+                    }
+                    break;
+                case "renderer-extension": readRendererExtension(reader, renderer); break;
+                default: skipElement(reader);
+            }
+        }
+
+        return renderer;
+    }
+
+    private static void readRendererExtension(XMLStreamReader reader, RendererBean renderer) throws XMLStreamException {
+        while (reader.nextTag() == START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "renders-children": renderer.setRendersChildren(readBoolean(reader)); break;
+                case "exclude-attributes": renderer.setExcludeAttributes(readText(reader)); break;
+                case "jsp-ignore": renderer.setIgnoreForJsp(readBoolean(reader)); break;
+                case "ignore-all": renderer.setIgnoreAll(readBoolean(reader)); break;
+                case "tag-name": renderer.setTagName(readText(reader)); break;
+                case "body-tag": renderer.setBodyTag(readBoolean(reader)); break;
+                default: skipElement(reader);
+            }
+        }
+    }
+
+    private static AttributeBean readAttribute(XMLStreamReader reader) throws XMLStreamException {
+        AttributeBean attribute = new AttributeBean();
+
+        while (reader.nextTag() == START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "description": readDescription(reader, attribute); break;
+                case "attribute-name": attribute.setAttributeName(readText(reader)); break;
+                case "attribute-class": attribute.setAttributeClass(readText(reader)); break;
+                case "suggested-value": attribute.setSuggestedValue(readText(reader)); break;
+                case "attribute-extension": readAttributeExtension(reader, attribute); break;
+                default: skipElement(reader);
+            }
+        }
+
+        return attribute;
+    }
+
+    private static void readAttributeExtension(XMLStreamReader reader, AttributeBean attribute) throws XMLStreamException {
+        while (reader.nextTag() == START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "default-value": attribute.setDefaultValue(readText(reader)); break;
+                case "ignored-by-renderer": attribute.setPassThrough(readBoolean(reader)); break;
+                case "required": attribute.setRequired(readBoolean(reader)); break;
+                case "tag-attribute": attribute.setTagAttribute(readBoolean(reader)); break;
+                case "renderer-attribute-ignore": attribute.setAttributeIgnoredForRenderer(readBoolean(reader)); break;
+                case "behavior": attribute.addBehavior(readText(reader)); break;
+                case "default-behavior": attribute.setDefaultBehavior(readBoolean(reader)); break;
+                default: skipElement(reader);
+            }
+        }
+    }
+
+    // Like the parser, a later attribute with the same name overrides the values it declares
+    private static void mergeAttribute(AttributeBean attribute, AttributeBean existing) {
+        if (attribute.getAttributeClass() != null) {
+            existing.setAttributeClass(attribute.getAttributeClass());
+        }
+        if (attribute.getSuggestedValue() != null) {
+            existing.setSuggestedValue(attribute.getSuggestedValue());
+        }
+        if (attribute.getDefaultValue() != null) {
+            existing.setDefaultValue(attribute.getDefaultValue());
+        }
+        if (attribute.isPassThrough()) {
+            existing.setPassThrough(true);
+        }
+        if (attribute.isRequired()) {
+            existing.setRequired(true);
+        }
+        if (!attribute.isTagAttribute()) {
+            existing.setTagAttribute(false);
+        }
+        existing.addAllBehaviors(attribute.getBehaviors());
+        if (attribute.isDefaultBehavior()) {
+            existing.setDefaultBehavior(true);
+        }
+        mergeDescriptions(attribute, existing);
+    }
+
+    private static void mergeDescriptions(FeatureBean feature, FeatureBean existing) {
+        DescriptionBean[] descriptions = feature.getDescriptions();
+        if (descriptions != null) {
+            for (DescriptionBean description : descriptions) {
+                setDescription(existing, description.getLang(), description.getDescription());
+            }
+        }
+    }
+
+    /**
+     * Reads a description element, with the markup in it kept as text, like the parser does.
+     */
+    private static void readDescription(XMLStreamReader reader, FeatureBean feature) throws XMLStreamException {
+        String lang = reader.getAttributeValue(null, "lang");
+        if (lang == null) {
+            lang = reader.getAttributeValue(XMLConstants.XML_NS_URI, "lang");
+        }
+
+        setDescription(feature, (lang == null) ? "" : lang, readMarkup(reader));
+    }
+
+    private static void setDescription(FeatureBean feature, String lang, String text) {
+        DescriptionBean description = feature.getDescription(lang);
+        if (description == null) {
+            description = new DescriptionBean();
+            description.setLang(lang);
+            feature.addDescription(description);
+        }
+
+        description.setDescription(text);
+    }
+
+    // The content of the current element, with child elements written as the parser serializes their DOM nodes,
+    // which leave out the texts of only whitespace
+    private static String readMarkup(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder markup = new StringBuilder();
+        StringBuilder text = new StringBuilder();
+        boolean startTagOpen = false;
+
+        for (int depth = 0;;) {
+            int event = reader.next();
+            if (event == CHARACTERS || event == CDATA || event == SPACE) {
+                text.append(reader.getText());
+                continue;
+            }
+
+            if (event != START_ELEMENT && event != END_ELEMENT) {
+                // Comments and processing instructions are left out
+                continue;
+            }
+
+            if (text.toString().trim().length() > 0) {
+                if (startTagOpen) {
+                    markup.append('>');
+                    startTagOpen = false;
+                }
+                markup.append(text);
+            }
+            text.setLength(0);
+
+            if (event == START_ELEMENT) {
+                if (startTagOpen) {
+                    markup.append('>');
+                }
+                markup.append('<').append(getQualifiedName(reader.getName()));
+                appendAttributes(reader, markup);
+                startTagOpen = true;
+                depth++;
+            } else if (depth-- == 0) {
+                return markup.toString();
+            } else if (startTagOpen) {
+                markup.append(" />");
+                startTagOpen = false;
+            } else {
+                markup.append("</").append(getQualifiedName(reader.getName())).append('>');
+            }
+        }
+    }
+
+    // In the order of the name, like the attributes of a DOM element, and with the values as is
+    private static void appendAttributes(XMLStreamReader reader, StringBuilder markup) {
+        Map<String, String> attributes = new TreeMap<>();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            attributes.put(getQualifiedName(reader.getAttributeName(i)), reader.getAttributeValue(i));
+        }
+
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            markup.append(' ').append(attribute.getKey()).append("=\"").append(attribute.getValue()).append('"');
+        }
+    }
+
+    private static String getQualifiedName(QName name) {
+        return name.getPrefix().isEmpty() ? name.getLocalPart() : name.getPrefix() + ':' + name.getLocalPart();
+    }
+
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        return reader.getElementText().trim();
+    }
+
+    // The values the parser converts to true; any other value is false
+    private static boolean readBoolean(XMLStreamReader reader) throws XMLStreamException {
+        switch (readText(reader).toLowerCase()) {
+            case "true":
+            case "yes":
+            case "y":
+            case "on":
+            case "1":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        for (int depth = 1; depth > 0;) {
+            switch (reader.next()) {
+                case START_ELEMENT: depth++; break;
+                case END_ELEMENT: depth--; break;
+                default:
+            }
+        }
+    }
+
+}
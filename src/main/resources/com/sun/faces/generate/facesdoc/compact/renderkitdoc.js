@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+/* Shows the title of a page in a frame as the title of the frameset, for the compact pages. */
+window.onload = function() {
+    try {
+        if (parent !== window) {
+            parent.document.title = document.title;
+        }
+    } catch (e) {
+        // The frameset is not accessible, such as for files opened from disk in some browsers
+    }
+};
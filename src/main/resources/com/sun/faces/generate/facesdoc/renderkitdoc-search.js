@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+/*
+ * Navigation and search of the renderers frame.
+ *
+ * search-index.js calls init() with the component families and the shard of each; a shard file
+ * search-index-<n>.js calls shard() with the renderers of its families, as
+ * [componentFamily, rendererType, fileName, [attributeName, ...]]. Shards are loaded with script
+ * elements, not XMLHttpRequest, so the docs also work when opened from the file system. A shard that
+ * fails to load is passed to its callbacks as null, and is loaded again when asked for the next time.
+ */
+var renderkitdocSearch = (function () {
+
+    var index;
+    var shards = [];
+    var pending = {};
+    var currentQuery = "";
+
+    function releaseShard(shard, renderers) {
+        var callbacks = pending[shard] || [];
+        delete pending[shard];
+        for (var i = 0; i < callbacks.length; i++) {
+            callbacks[i](renderers);
+        }
+    }
+
+    function loadShard(shard, callback) {
+        if (shards[shard]) {
+            callback(shards[shard]);
+            return;
+        }
+
+        var callbacks = pending[shard] || (pending[shard] = []);
+        callbacks.push(callback);
+
+        if (callbacks.length == 1) {
+            var script = document.createElement("script");
+            script.src = index.shards[shard];
+            script.onerror = function () {
+                script.parentNode.removeChild(script);
+                releaseShard(shard, null);
+            };
+            document.getElementsByTagName("head")[0].appendChild(script);
+        }
+    }
+
+    // Calls back with whether all shards are loaded
+    function loadAllShards(callback) {
+        var remaining = index.shards.length;
+        var complete = true;
+        if (remaining == 0) {
+            callback(complete);
+            return;
+        }
+
+        for (var i = 0; i < index.shards.length; i++) {
+            loadShard(i, function (renderers) {
+                complete = complete && renderers != null;
+                if (--remaining == 0) {
+                    callback(complete);
+                }
+            });
+        }
+    }
+
+    function escapeHtml(text) {
+        return text.replace(/&/g, "&amp;").replace(/</g, "&lt;").replace(/>/g, "&gt;").replace(/"/g, "&quot;");
+    }
+
+    function rendererLink(renderer, label) {
+        return "<A HREF=\"" + escapeHtml(index.renderKitId + "/" + renderer[2]) + "\" TARGET=\"rendererFrame\">"
+            + escapeHtml(label) + "</A>";
+    }
+
+    return {
+
+        init: function (data) {
+            index = data;
+        },
+
+        shard: function (shard, renderers) {
+            shards[shard] = renderers;
+            releaseShard(shard, renderers);
+        },
+
+        toggle: function (familyIndex) {
+            var family = index.families[familyIndex];
+            var element = document.getElementById("family-" + familyIndex);
+
+            if (element.style.display != "none") {
+                element.style.display = "none";
+                return;
+            }
+
+            loadShard(family[1], function (renderers) {
+                if (!renderers) {
+                    element.innerHTML = "<I>Could not load the renderers</I>";
+                    element.style.display = "";
+                    return;
+                }
+
+                var html = "";
+                for (var i = 0; i < renderers.length; i++) {
+                    if (renderers[i][0] == family[0]) {
+                        html += rendererLink(renderers[i], renderers[i][1]) + "<BR>";
+                    }
+                }
+
+                element.innerHTML = html;
+                element.style.display = "";
+            });
+        },
+
+        search: function (query) {
+            var results = document.getElementById("search-results");
+            var families = document.getElementById("families");
+            query = query.replace(/^\s+|\s+$/g, "").toLowerCase();
+            currentQuery = query;
+
+            if (query.length == 0) {
+                results.innerHTML = "";
+                families.style.display = "";
+                return;
+            }
+
+            loadAllShards(function (complete) {
+                // The shards of an earlier query may load after a later query was entered or cleared
+                if (query != currentQuery) {
+                    return;
+                }
+
+                var html = "";
+                for (var s = 0; s < index.shards.length; s++) {
+                    if (!shards[s]) {
+                        continue;
+                    }
+
+                    for (var i = 0; i < shards[s].length; i++) {
+                        var renderer = shards[s][i];
+                        var matches = [];
+                        for (var a = 0; a < renderer[3].length; a++) {
+                            if (renderer[3][a].toLowerCase().indexOf(query) != -1) {
+                                matches.push(renderer[3][a]);
+                            }
+                        }
+
+                        if (matches.length || (renderer[0] + " " + renderer[1]).toLowerCase().indexOf(query) != -1) {
+                            html += "<DT>" + rendererLink(renderer, renderer[1]) + "</DT><DD>" + escapeHtml(renderer[0])
+                                + (matches.length ? "<BR>" + escapeHtml(matches.join(", ")) : "") + "</DD>";
+                        }
+                    }
+                }
+
+                if (!complete) {
+                    html += "<DT><I>Could not load all renderers</I></DT>";
+                }
+
+                results.innerHTML = html || "<DT>No matches</DT>";
+                families.style.display = "none";
+            });
+        }
+    };
+})();
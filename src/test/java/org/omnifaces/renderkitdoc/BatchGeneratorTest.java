@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.omnifaces.renderkitdoc.BatchGenerator.Entry;
+
+public class BatchGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsTheEntriesRelativeToTheManifest() throws IOException {
+        File manifest = write("# comment\n\none.xml\t-\t\tdocs/one\ntwo.xml\tschemas\tHTML_TWO\tdocs/two\n");
+
+        List<Entry> entries = BatchGenerator.readManifest(manifest);
+
+        assertEquals(2, entries.size());
+        assertEquals(new File(folder.getRoot(), "one.xml").getPath(), entries.get(0).getFacesConfig());
+        assertEquals(null, entries.get(0).getSchemaDirectory());
+        assertEquals(RenderKitDocGenerator.DEFAULT_RENDER_KIT_ID, entries.get(0).getRenderKitId());
+        assertEquals(new File(folder.getRoot(), "schemas").getPath(), entries.get(1).getSchemaDirectory());
+        assertEquals("HTML_TWO", entries.get(1).getRenderKitId());
+        assertEquals(new File(folder.getRoot(), "docs/two"), entries.get(1).getOutputDirectory());
+    }
+
+    @Test
+    public void rejectsEntriesWithTheSameOutputDirectory() throws IOException {
+        File manifest = write("one.xml\t-\t-\tdocs\ntwo.xml\t-\t-\tdocs/../docs/\n");
+
+        try {
+            BatchGenerator.readManifest(manifest);
+            fail("Expected the second output directory to be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(":2: ") && e.getMessage().contains("line 1"));
+        }
+
+        File outputDirectory = new File(folder.getRoot(), "docs");
+        try {
+            new BatchGenerator(Arrays.asList(new Entry("one.xml", null, "HTML_BASIC", outputDirectory),
+                new Entry("two.xml", null, "HTML_TWO", new File(outputDirectory, "."))));
+            fail("Expected the second output directory to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("two.xml"));
+        }
+    }
+
+    private File write(String content) throws IOException {
+        File manifest = new File(folder.getRoot(), "manifest.txt");
+        Files.write(manifest.toPath(), content.getBytes(UTF_8));
+        return manifest;
+    }
+
+}
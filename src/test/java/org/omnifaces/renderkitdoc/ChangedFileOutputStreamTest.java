@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChangedFileOutputStreamTest {
+
+    // A modification time well before the tests run, so a rewritten file is recognized by its time
+    private static final long OLD_TIME = 1_000_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final GenerationMetrics metrics = new GenerationMetrics();
+    private final Set<File> changedFiles = new HashSet<>();
+
+    @Test
+    public void leavesAnUnchangedFileAlone() throws IOException {
+        File file = newFile("page.html", "content");
+
+        try (ChangedFileOutputStream out = newStream(file)) {
+            out.write("content".getBytes(UTF_8));
+        }
+
+        assertEquals(OLD_TIME, file.lastModified());
+        assertTrue(changedFiles.isEmpty());
+        assertEquals(1, metrics.getFilesSkipped());
+        assertEquals(0, metrics.getFilesWritten());
+        assertNoTemporaryFiles();
+    }
+
+    @Test
+    public void replacesAChangedFile() throws IOException {
+        File file = newFile("page.html", "content");
+
+        try (ChangedFileOutputStream out = newStream(file)) {
+            out.write("other content".getBytes(UTF_8));
+        }
+
+        assertEquals("other content", read(file));
+        assertEquals(new HashSet<>(Arrays.asList(file)), changedFiles);
+        assertEquals(1, metrics.getFilesWritten());
+        assertNoTemporaryFiles();
+    }
+
+    @Test
+    public void leavesTheFileAloneWhenAborted() throws IOException {
+        File file = newFile("page.html", "content");
+
+        ChangedFileOutputStream out = newStream(file);
+        out.write("partial".getBytes(UTF_8));
+        out.abort();
+        out.close();
+
+        assertEquals("content", read(file));
+        assertEquals(OLD_TIME, file.lastModified());
+        assertTrue(changedFiles.isEmpty());
+        assertNoTemporaryFiles();
+    }
+
+    @Test
+    public void leavesTheFileAloneWhenWritingAPageFails() throws IOException {
+        File file = newFile("page.html", "content");
+
+        try {
+            RenderKitDocGenerator.writePage(newStream(file), out -> {
+                out.write("<html>partial");
+                throw new IllegalStateException("broken");
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("broken", e.getMessage());
+        }
+
+        assertEquals("content", read(file));
+        assertTrue(changedFiles.isEmpty());
+        assertNoTemporaryFiles();
+    }
+
+    @Test
+    public void comparesContentLongerThanTheBuffer() throws IOException {
+        char[] text = new char[20000];
+        Arrays.fill(text, 'x');
+        File file = newFile("page.html", new String(text));
+        File other = newFile("other.html", new String(text).substring(1) + 'y');
+
+        assertTrue(ChangedFileOutputStream.hasSameContent(file.toPath(), file.toPath()));
+        assertFalse(ChangedFileOutputStream.hasSameContent(file.toPath(), other.toPath()));
+        assertFalse(ChangedFileOutputStream.hasSameContent(file.toPath(), new File(folder.getRoot(), "missing.html").toPath()));
+    }
+
+    @Test
+    public void writesContentInMemoryOnlyWhenChanged() throws IOException {
+        File file = newFile("stylesheet.css", "content");
+        File missing = new File(folder.getRoot(), "index.html");
+
+        ChangedFileOutputStream.write("content".getBytes(UTF_8), file, null, metrics, changedFiles, null);
+        assertEquals(OLD_TIME, file.lastModified());
+        assertTrue(changedFiles.isEmpty());
+
+        ChangedFileOutputStream.write("other content".getBytes(UTF_8), file, null, metrics, changedFiles, null);
+        ChangedFileOutputStream.write("index".getBytes(UTF_8), missing, null, metrics, changedFiles, null);
+        assertEquals("other content", read(file));
+        assertEquals("index", read(missing));
+        assertEquals(new HashSet<>(Arrays.asList(file, missing)), changedFiles);
+        assertEquals(1, metrics.getFilesSkipped());
+        assertEquals(2, metrics.getFilesWritten());
+        assertNoTemporaryFiles();
+    }
+
+    @Test
+    public void comparesContentInMemoryLongerThanTheBuffer() throws IOException {
+        char[] text = new char[20000];
+        Arrays.fill(text, 'x');
+        File file = newFile("page.html", new String(text));
+
+        assertTrue(ChangedFileOutputStream.hasSameContent(new String(text).getBytes(UTF_8), file.toPath()));
+        assertFalse(ChangedFileOutputStream.hasSameContent((new String(text).substring(1) + 'y').getBytes(UTF_8), file.toPath()));
+        assertFalse(ChangedFileOutputStream.hasSameContent(new byte[0], new File(folder.getRoot(), "missing.html").toPath()));
+    }
+
+    private ChangedFileOutputStream newStream(File file) throws IOException {
+        return new ChangedFileOutputStream(file, null, metrics, changedFiles, null);
+    }
+
+    private File newFile(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+        file.setLastModified(OLD_TIME);
+        return file;
+    }
+
+    private void assertNoTemporaryFiles() {
+        assertEquals(0, folder.getRoot().listFiles((dir, name) -> name.endsWith(".tmp")).length);
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), UTF_8);
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.omnifaces.facesconfigparser.digester.beans.AttributeBean;
+import org.omnifaces.facesconfigparser.digester.beans.DescriptionBean;
+import org.omnifaces.facesconfigparser.digester.beans.FeatureBean;
+import org.omnifaces.facesconfigparser.digester.beans.RenderKitBean;
+import org.omnifaces.facesconfigparser.digester.beans.RendererBean;
+
+/**
+ * The sample faces-config file of the tests, and a text form of the parsed beans to compare them by, as the beans
+ * have no equals method.
+ */
+final class FacesConfigBeans {
+
+    private static final String SCHEMA_FILE = "web-facesconfig_2_2.xsd";
+    private static final String SCHEMA_LOCATION = "http://xmlns.jcp.org/xml/ns/javaee/" + SCHEMA_FILE;
+
+    private FacesConfigBeans() {
+    }
+
+    /**
+     * Returns a copy of the sample faces-config file in the given directory, with its schema location pointing to
+     * the schema of the tests, which only declares the root element, so the parser validates it offline.
+     */
+    static File getSampleFacesConfig(File directory) throws IOException, URISyntaxException {
+        String sample = new String(Files.readAllBytes(new File(FacesConfigBeans.class.getResource("faces-config.xml").toURI()).toPath()), UTF_8);
+        File facesConfig = new File(directory, "faces-config.xml");
+        Files.write(facesConfig.toPath(), sample.replace(SCHEMA_LOCATION, new File(getSchemaDirectory(), "com/sun/faces/" + SCHEMA_FILE).toURI().toString()).getBytes(UTF_8));
+        return facesConfig;
+    }
+
+    static File getSchemaDirectory() throws URISyntaxException {
+        return new File(FacesConfigBeans.class.getResource("schemas").toURI());
+    }
+
+    /**
+     * Describes the render kit with its descriptions and renderers, but without the renderers if
+     * <code>withRenderers</code> is not set.
+     */
+    static String describe(RenderKitBean renderKit, boolean withRenderers) {
+        StringBuilder description = new StringBuilder();
+        description.append("render-kit ").append(renderKit.getRenderKitId())
+            .append(" class=").append(renderKit.getRenderKitClass()).append('\n');
+        appendDescriptions(description, renderKit, "  ");
+
+        if (withRenderers) {
+            for (RendererBean renderer : renderKit.getRenderers()) {
+                description.append(describe(renderer));
+            }
+        }
+
+        return description.toString();
+    }
+
+    static String describe(RendererBean renderer) {
+        StringBuilder description = new StringBuilder();
+        description.append("  renderer ").append(renderer.getComponentFamily()).append(' ').append(renderer.getRendererType())
+            .append(" class=").append(renderer.getRendererClass())
+            .append(" excludeAttributes=").append(renderer.getExcludeAttributes())
+            .append(" tagName=").append(renderer.getTagName())
+            .append(" rendersChildren=").append(renderer.isRendersChildren())
+            .append(" ignoreForJsp=").append(renderer.isIgnoreForJsp())
+            .append(" ignoreAll=").append(renderer.isIgnoreAll())
+            .append(" bodyTag=").append(renderer.isBodyTag()).append('\n');
+        appendDescriptions(description, renderer, "    ");
+
+        AttributeBean[] attributes = renderer.getAttributes();
+        if (attributes != null) {
+            for (AttributeBean attribute : attributes) {
+                description.append("    attribute ").append(attribute.getAttributeName())
+                    .append(" class=").append(attribute.getAttributeClass())
+                    .append(" default=").append(attribute.getDefaultValue())
+                    .append(" suggested=").append(attribute.getSuggestedValue())
+                    .append(" passThrough=").append(attribute.isPassThrough())
+                    .append(" required=").append(attribute.isRequired())
+                    .append(" tagAttribute=").append(attribute.isTagAttribute())
+                    .append(" ignoredForRenderer=").append(attribute.isAttributeIgnoredForRenderer())
+                    .append(" behaviors=").append(attribute.getBehaviors())
+                    .append(" defaultBehavior=").append(attribute.isDefaultBehavior()).append('\n');
+                appendDescriptions(description, attribute, "      ");
+            }
+        }
+
+        return description.toString();
+    }
+
+    // In the order of the language, as the beans keep them in a map
+    private static void appendDescriptions(StringBuilder description, FeatureBean feature, String indent) {
+        Map<String, String> descriptions = new TreeMap<>();
+        DescriptionBean[] beans = feature.getDescriptions();
+        if (beans != null) {
+            for (DescriptionBean bean : beans) {
+                descriptions.put(bean.getLang(), bean.getDescription());
+            }
+        }
+
+        descriptions.forEach((lang, text) -> description.append(indent).append("description [").append(lang).append("] ").append(text).append('\n'));
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.omnifaces.facesconfigparser.FacesConfigParser.parseFacesConfig;
+import static org.omnifaces.renderkitdoc.FacesConfigBeans.describe;
+import static org.omnifaces.renderkitdoc.FacesConfigBeans.getSampleFacesConfig;
+import static org.omnifaces.renderkitdoc.FacesConfigBeans.getSchemaDirectory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.omnifaces.facesconfigparser.digester.beans.AttributeBean;
+import org.omnifaces.facesconfigparser.digester.beans.DescriptionBean;
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+import org.omnifaces.facesconfigparser.digester.beans.RenderKitBean;
+import org.omnifaces.facesconfigparser.digester.beans.RendererBean;
+
+public class FacesConfigCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsTheParsedSample() throws Exception {
+        FacesConfigBean parsed = parseFacesConfig(getSampleFacesConfig(folder.getRoot()).getPath(), getSchemaDirectory().getPath());
+
+        assertEquals(describeAll(parsed), describeAll(roundTrip(parsed)));
+    }
+
+    @Test
+    public void roundTripsAbsentValuesAndLongDescriptions() throws Exception {
+        char[] text = new char[70000];
+        Arrays.fill(text, 'é');
+
+        DescriptionBean description = new DescriptionBean();
+        description.setLang("");
+        description.setDescription(new String(text));
+
+        AttributeBean attribute = new AttributeBean();
+        attribute.setAttributeName("value");
+        attribute.addDescription(description);
+
+        RendererBean renderer = new RendererBean();
+        renderer.setComponentFamily("family");
+        renderer.setRendererType("type");
+        renderer.addAttribute(attribute);
+
+        RenderKitBean renderKit = new RenderKitBean();
+        renderKit.setRenderKitId("KIT");
+        renderKit.addRenderer(renderer);
+
+        FacesConfigBean configBean = new FacesConfigBean();
+        configBean.addRenderKit(renderKit);
+
+        FacesConfigBean read = roundTrip(configBean);
+
+        assertEquals(describeAll(configBean), describeAll(read));
+        assertEquals(70000, read.getRenderKit("KIT").getRenderer("family", "type").getAttribute("value").getDescription("").getDescription().length());
+    }
+
+    @Test
+    public void keepsAtMostTheMaximumNumberOfEntries() throws Exception {
+        File directory = folder.newFolder("cache");
+        FacesConfigCache cache = new FacesConfigCache(directory, 2, "1.0");
+
+        FacesConfigBean first = cache.parse(getFacesConfig("first"), getSchemaDirectory().getPath());
+        FacesConfigBean second = cache.parse(getFacesConfig("second"), getSchemaDirectory().getPath());
+        cache.parse(getFacesConfig("third"), getSchemaDirectory().getPath());
+
+        assertEquals(2, getEntries(directory).length);
+
+        // The least recently used entry is evicted from memory, so parsing it again returns another model
+        assertSame(second, cache.parse(getFacesConfig("second"), getSchemaDirectory().getPath()));
+        assertNotSame(first, cache.parse(getFacesConfig("first"), getSchemaDirectory().getPath()));
+    }
+
+    @Test
+    public void clearsTheEntriesOfAnotherPluginVersion() throws Exception {
+        File directory = folder.newFolder("cache");
+        new FacesConfigCache(directory, 32, "1.0").parse(getFacesConfig("first"), getSchemaDirectory().getPath());
+        File[] oldEntries = getEntries(directory);
+        assertEquals(1, oldEntries.length);
+
+        new FacesConfigCache(directory, 32, "2.0").parse(getFacesConfig("second"), getSchemaDirectory().getPath());
+
+        assertFalse(oldEntries[0].exists());
+        assertEquals(1, getEntries(directory).length);
+        assertEquals("2.0", new String(Files.readAllBytes(new File(directory, "version").toPath()), UTF_8));
+    }
+
+    @Test
+    public void parsesAgainWhenAnEntryIsCorrupt() throws Exception {
+        File directory = folder.newFolder("cache");
+        // A version of its own, so the model is not in the memory cache from another test yet
+        FacesConfigCache cache = new FacesConfigCache(directory, 32, "corrupt");
+        String facesConfig = getFacesConfig("first");
+        String expected = describeAll(cache.parse(facesConfig, getSchemaDirectory().getPath()));
+
+        File entry = getEntries(directory)[0];
+        byte[] content = Files.readAllBytes(entry.toPath());
+
+        // Damages every count and text in turn, as well as the end of the entry
+        for (int position = 0; position < content.length; position += 7) {
+            byte[] corrupt = content.clone();
+            corrupt[position] ^= (position % 2 == 0) ? 0x80 : 0x01;
+            Files.write(entry.toPath(), corrupt);
+            clearMemoryCache();
+
+            assertEquals("Corrupt byte " + position, expected, describeAll(cache.parse(facesConfig, getSchemaDirectory().getPath())));
+        }
+
+        Files.write(entry.toPath(), Arrays.copyOf(content, content.length / 2));
+        clearMemoryCache();
+
+        assertEquals(expected, describeAll(cache.parse(facesConfig, getSchemaDirectory().getPath())));
+        assertArrayEquals(content, Files.readAllBytes(entry.toPath()));
+    }
+
+    // The memory cache is shared by all caches, and keeps no more entries than the last cache allows
+    private void clearMemoryCache() throws Exception {
+        new FacesConfigCache(null, 0, "1.0").parse(getFacesConfig("other"), getSchemaDirectory().getPath());
+    }
+
+    // A copy of the sample in its own directory, made unique by a comment so it has its own cache entry
+    private String getFacesConfig(String name) throws Exception {
+        File directory = new File(folder.getRoot(), name);
+        if (!directory.isDirectory()) {
+            directory.mkdirs();
+            Files.write(getSampleFacesConfig(directory).toPath(), ("<!-- " + name + " -->\n").getBytes(UTF_8), APPEND);
+        }
+
+        return new File(directory, "faces-config.xml").getPath();
+    }
+
+    private static File[] getEntries(File directory) {
+        return directory.listFiles((dir, name) -> name.endsWith(".bin"));
+    }
+
+    private static FacesConfigBean roundTrip(FacesConfigBean configBean) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            FacesConfigCache.writeFacesConfig(out, configBean);
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return FacesConfigCache.readFacesConfig(in);
+        }
+    }
+
+    private static String describeAll(FacesConfigBean configBean) {
+        StringBuilder description = new StringBuilder();
+        for (RenderKitBean renderKit : configBean.getRenderKits()) {
+            description.append(describe(renderKit, true));
+        }
+
+        return description.toString();
+    }
+
+}
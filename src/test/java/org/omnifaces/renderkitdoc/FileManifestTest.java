@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.omnifaces.facesconfigparser.FacesConfigParser.parseFacesConfig;
+import static org.omnifaces.renderkitdoc.FacesConfigBeans.getSampleFacesConfig;
+import static org.omnifaces.renderkitdoc.FacesConfigBeans.getSchemaDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+
+public class FileManifestTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesTheFilesRelativeToTheDirectoryInOrder() throws IOException {
+        File directory = folder.getRoot();
+        File page = new File(directory, "page.html");
+        File kitPage = new File(new File(directory, "HTML_BASIC"), "renderkit-summary.html");
+
+        FileManifest.write(directory, Arrays.asList(page, kitPage));
+
+        assertEquals("HTML_BASIC/renderkit-summary.html\npage.html\n", read(new File(directory, FileManifest.MANIFEST_FILE)));
+        assertEquals(new HashSet<>(Arrays.asList(page, kitPage)), FileManifest.read(directory));
+    }
+
+    @Test
+    public void ignoresEntriesOutsideTheDirectory() throws IOException {
+        File directory = folder.newFolder("renderkitdoc");
+        write(new File(directory, FileManifest.MANIFEST_FILE), "page.html\n../outside.html\nHTML_BASIC/../../outside.html\n.\n\n");
+
+        assertEquals(new HashSet<>(Arrays.asList(new File(directory, "page.html"))), FileManifest.read(directory));
+    }
+
+    @Test
+    public void readsNoFilesWithoutManifest() throws IOException {
+        assertTrue(FileManifest.read(folder.getRoot()).isEmpty());
+    }
+
+    @Test
+    public void deletesOnlyStaleFilesListedInTheManifest() throws Exception {
+        FacesConfigBean configBean = parseFacesConfig(getSampleFacesConfig(folder.getRoot()).getPath(), getSchemaDirectory().getPath());
+        File directory = new File(folder.getRoot(), "renderkitdoc");
+        File kitDirectory = new File(directory, "HTML_BASIC");
+
+        RenderKitDocGenerator.inDirectory(directory, "HTML_BASIC").generateHtmlDocs(configBean);
+
+        File stale = new File(kitDirectory, "removed.html");
+        File unlisted = new File(kitDirectory, "mine.html");
+        File outside = new File(folder.getRoot(), "outside.html");
+        write(stale, "stale");
+        write(unlisted, "mine");
+        write(outside, "outside");
+        Files.write(new File(directory, FileManifest.MANIFEST_FILE).toPath(), "HTML_BASIC/removed.html\n../outside.html\n".getBytes(UTF_8),
+            StandardOpenOption.APPEND);
+
+        RenderKitDocGenerator generator = RenderKitDocGenerator.inDirectory(directory, "HTML_BASIC");
+        generator.generateHtmlDocs(configBean);
+
+        assertFalse(stale.exists());
+        assertEquals(Arrays.asList(stale), generator.getFilesTouched());
+        assertTrue(unlisted.exists());
+        assertTrue(outside.exists());
+        assertFalse(FileManifest.read(directory).contains(stale));
+        assertTrue(FileManifest.read(directory).contains(new File(kitDirectory, "renderkit-summary.html")));
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), UTF_8);
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Locale;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.omnifaces.facesconfigparser.digester.beans.AttributeBean;
+import org.omnifaces.facesconfigparser.digester.beans.DescriptionBean;
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+import org.omnifaces.facesconfigparser.digester.beans.RenderKitBean;
+import org.omnifaces.facesconfigparser.digester.beans.RendererBean;
+import org.omnifaces.renderkitdoc.RenderKitModel.Renderer;
+
+public class ModelExportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void quotesCsvFieldsWithSeparatorsQuotesAndLineBreaks() throws Exception {
+        String csv = export(ExportFormat.CSV);
+
+        assertEquals(
+            "record,renderKitId,componentFamily,rendererType,rendersChildren,attributeName,attributeClass,passThrough,defaultValue,description\r\n"
+            + "renderer,KIT,family,type,true,,,,,\"Renders <b class=\"\"x\"\">this</b>, or that.\"\r\n"
+            + "attribute,KIT,family,type,,title,java.lang.String,true,\"a, \"\"b\"\"\",\"The title\non two lines.\"\r\n"
+            + "attribute,KIT,family,type,,value,,false,,Plain\r\n",
+            csv);
+    }
+
+    // A less-than sign is escaped too, as the search index embeds the same strings in a script
+    @Test
+    public void escapesJsonStrings() throws Exception {
+        String json = export(ExportFormat.JSON_LINES);
+
+        assertEquals(
+            "{\"record\":\"renderer\",\"renderKitId\":\"KIT\",\"componentFamily\":\"family\",\"rendererType\":\"type\",\"rendersChildren\":true,"
+            + "\"description\":\"Renders \\u003cb class=\\\"x\\\">this\\u003c/b>, or that.\"}\n"
+            + "{\"record\":\"attribute\",\"renderKitId\":\"KIT\",\"componentFamily\":\"family\",\"rendererType\":\"type\",\"attributeName\":\"title\","
+            + "\"attributeClass\":\"java.lang.String\",\"passThrough\":true,\"defaultValue\":\"a, \\\"b\\\"\",\"description\":\"The title\\non two lines.\"}\n"
+            + "{\"record\":\"attribute\",\"renderKitId\":\"KIT\",\"componentFamily\":\"family\",\"rendererType\":\"type\",\"attributeName\":\"value\","
+            + "\"attributeClass\":null,\"passThrough\":false,\"defaultValue\":null,\"description\":\"Plain\"}\n",
+            json);
+    }
+
+    @Test
+    public void leavesTheExistingFileWhenAborted() throws Exception {
+        File file = new File(folder.getRoot(), ExportFormat.CSV.getFileName());
+        Files.write(file.toPath(), "previous".getBytes(UTF_8));
+
+        ModelExport export = newExport(ExportFormat.CSV);
+        export.write(newModel().getRenderers().get(0));
+        export.abort();
+
+        assertEquals("previous", new String(Files.readAllBytes(file.toPath()), UTF_8));
+        assertFalse(new File(folder.getRoot(), ExportFormat.JSON_LINES.getFileName()).exists());
+    }
+
+    private String export(ExportFormat format) throws Exception {
+        try (ModelExport export = newExport(format)) {
+            for (Renderer renderer : newModel().getRenderers()) {
+                export.write(renderer);
+            }
+        }
+
+        return new String(Files.readAllBytes(new File(folder.getRoot(), format.getFileName()).toPath()), UTF_8);
+    }
+
+    private ModelExport newExport(ExportFormat format) throws Exception {
+        return new ModelExport("KIT", asList(format), folder.getRoot(), null, new GenerationMetrics(), new HashSet<>());
+    }
+
+    private static RenderKitModel newModel() {
+        AttributeBean title = new AttributeBean();
+        title.setAttributeName("title");
+        title.setAttributeClass("java.lang.String");
+        title.setDefaultValue("a, \"b\"");
+        title.setPassThrough(true);
+        title.addDescription(newDescription("The title\non two lines."));
+
+        AttributeBean value = new AttributeBean();
+        value.setAttributeName("value");
+        value.addDescription(newDescription("Plain"));
+
+        RendererBean renderer = new RendererBean();
+        renderer.setComponentFamily("family");
+        renderer.setRendererType("type");
+        renderer.setRendersChildren(true);
+        renderer.addDescription(newDescription("Renders <b class=\"x\">this</b>, or that."));
+        renderer.addAttribute(title);
+        renderer.addAttribute(value);
+
+        RenderKitBean renderKit = new RenderKitBean();
+        renderKit.setRenderKitId("KIT");
+        renderKit.addRenderer(renderer);
+
+        FacesConfigBean configBean = new FacesConfigBean();
+        configBean.addRenderKit(renderKit);
+
+        return new RenderKitModel(configBean, "KIT", Locale.ROOT);
+    }
+
+    private static DescriptionBean newDescription(String text) {
+        DescriptionBean description = new DescriptionBean();
+        description.setLang("");
+        description.setDescription(text);
+        return description;
+    }
+
+}
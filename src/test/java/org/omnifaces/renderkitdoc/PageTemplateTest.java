@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PageTemplateTest {
+
+    private static final String TEMPLATE =
+        "<!-- A <!--#section name--> marker inside a line does not start a section -->\n"
+        + "<!--#section page-->\n"
+        + "<title>${title}</title>${ body }\n"
+        + "<!--#end-->\n"
+        + "<!--#section footer-->\r\n"
+        + "footer\n"
+        + "<!--#end-->\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesSectionsWithTheirPlaceholders() throws IOException {
+        PageTemplate template = PageTemplate.compile("test", TEMPLATE);
+
+        StringWriter out = new StringWriter();
+        template.write("page", out, (name, writer) -> writer.write("[" + name + "]"));
+        template.write("footer", out);
+
+        assertEquals("<title>[title]</title>[body]\nfooter\n", out.toString());
+    }
+
+    @Test
+    public void rejectsAnUnknownSection() throws IOException {
+        PageTemplate template = PageTemplate.compile("test", TEMPLATE);
+
+        try {
+            template.write("header", new StringWriter());
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("No section 'header' in template test", e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectsAnUnknownPlaceholderWhenLoaded() throws IOException {
+        File file = new File(folder.getRoot(), "renderkit-index.template");
+        Files.write(file.toPath(), "<!--#section page-->\n${renderKits}\n<!--#end-->\n<!--#section render-kit-->\n${renderKitId} ${body}\n<!--#end-->\n".getBytes(UTF_8));
+
+        try {
+            PageTemplate.getTemplate("renderkit-index.template", folder.getRoot());
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown placeholder ${body} in section 'render-kit' of template " + file, e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectsAPlaceholderInARarelyWrittenSectionWhenLoaded() throws IOException {
+        File file = new File(folder.getRoot(), "renderer.template");
+        Files.write(file.toPath(), "<!--#section page-->\n${title}\n<!--#end-->\n<!--#section no-attributes-->\n${title}\n<!--#end-->\n".getBytes(UTF_8));
+
+        try {
+            PageTemplate.getTemplate("renderer.template", folder.getRoot(), true);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown placeholder ${title} in section 'no-attributes' of template " + file, e.getMessage());
+        }
+    }
+
+    @Test
+    public void acceptsTheBundledTemplates() throws IOException {
+        for (String resourceName : RenderKitDocGenerator.TEMPLATE_RESOURCES) {
+            if (resourceName.endsWith(".template")) {
+                String fileName = resourceName.substring(resourceName.lastIndexOf('/') + 1);
+                PageTemplate.getTemplate(fileName, null, resourceName.contains("/" + PageTemplate.COMPACT_PATH));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsASectionWithoutEnd() {
+        try {
+            PageTemplate.compile("test", "<!--#section page-->\n<html>\n");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Section 'page' has no <!--#end--> in template test", e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectsAnUnterminatedSectionMarker() {
+        try {
+            PageTemplate.compile("test", "<!--#section page\n<html>\n");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unterminated section marker in template test", e.getMessage());
+        }
+    }
+
+    @Test
+    public void prefersATemplateInTheTemplateDirectory() throws IOException {
+        Files.write(new File(folder.getRoot(), "renderer.template").toPath(), "<!--#section page-->\nmine\n<!--#end-->\n".getBytes(UTF_8));
+
+        StringWriter out = new StringWriter();
+        PageTemplate.getTemplate("renderer.template", folder.getRoot(), true).write("page", out);
+
+        assertEquals("mine\n", out.toString());
+    }
+
+    @Test
+    public void compilesTheBundledTemplatesOnce() throws IOException {
+        PageTemplate template = PageTemplate.getTemplate("renderkit-index.template", null);
+
+        assertSame(template, PageTemplate.getTemplate("renderkit-index.template", folder.getRoot()));
+
+        StringWriter out = new StringWriter();
+        template.write("render-kit", out, (name, writer) -> writer.write(name));
+        assertTrue(out.toString().contains("renderKitId"));
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.omnifaces.facesconfigparser.digester.beans.AttributeBean;
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+import org.omnifaces.facesconfigparser.digester.beans.RenderKitBean;
+import org.omnifaces.facesconfigparser.digester.beans.RendererBean;
+import org.omnifaces.renderkitdoc.RenderKitModel.Attribute;
+import org.omnifaces.renderkitdoc.RenderKitModel.Renderer;
+
+public class SharedAttributeTablesTest {
+
+    private static final List<String> PASS_THROUGH = asList("accesskey", "dir", "lang", "onblur", "onclick", "ondblclick",
+        "onfocus", "onkeydown", "onkeypress", "onkeyup", "style", "title");
+
+    private static final List<String> EVENTS = asList("onmousedown", "onmousemove", "onmouseout", "onmouseover", "onmouseup");
+
+    @Test
+    public void sharesTheRowsOfEveryRendererSetSeparately() {
+        // All renderers have the pass-through attributes, three of them also the events, and some pairs one more
+        List<Renderer> renderers = new RenderKitModel(newFacesConfig(
+            newRenderer("a", PASS_THROUGH, EVENTS, asList("value")),
+            newRenderer("b", PASS_THROUGH, EVENTS, asList("value")),
+            newRenderer("c", PASS_THROUGH, EVENTS, asList("converter")),
+            newRenderer("d", PASS_THROUGH, asList("converter")),
+            newRenderer("e", PASS_THROUGH)), "KIT").getRenderers();
+
+        SharedAttributeTables tables = SharedAttributeTables.plan(renderers);
+
+        List<SharedAttributeTables.Fragment> fragments = tables.getFragments();
+        assertEquals(2, fragments.size());
+        assertEquals(PASS_THROUGH, getNames(fragments.get(0).getAttributes()));
+        assertEquals(renderers, fragments.get(0).getRenderers());
+        assertEquals(EVENTS, getNames(fragments.get(1).getAttributes()));
+        assertEquals(renderers.subList(0, 3), fragments.get(1).getRenderers());
+
+        // Rows shared by fewer than the minimum number of attributes stay on the renderer pages
+        assertEquals(fragments, tables.getFragments(renderers.get(0)));
+        assertEquals(asList("value"), getNames(tables.getOwnAttributes(renderers.get(0))));
+        assertEquals(fragments, tables.getFragments(renderers.get(2)));
+        assertEquals(asList("converter"), getNames(tables.getOwnAttributes(renderers.get(2))));
+        assertEquals(fragments.subList(0, 1), tables.getFragments(renderers.get(3)));
+        assertEquals(asList("converter"), getNames(tables.getOwnAttributes(renderers.get(3))));
+        assertEquals(fragments.subList(0, 1), tables.getFragments(renderers.get(4)));
+        assertTrue(tables.getOwnAttributes(renderers.get(4)).isEmpty());
+    }
+
+    @Test
+    public void sharesNoRowsOfASingleRenderer() {
+        List<Renderer> renderers = new RenderKitModel(newFacesConfig(
+            newRenderer("a", PASS_THROUGH),
+            newRenderer("b", EVENTS)), "KIT").getRenderers();
+
+        SharedAttributeTables tables = SharedAttributeTables.plan(renderers);
+
+        assertTrue(tables.getFragments().isEmpty());
+        assertTrue(tables.getFragments(renderers.get(0)).isEmpty());
+        assertEquals(PASS_THROUGH, getNames(tables.getOwnAttributes(renderers.get(0))));
+    }
+
+    @SafeVarargs
+    private static RendererBean newRenderer(String rendererType, List<String>... attributeNames) {
+        RendererBean renderer = new RendererBean();
+        renderer.setComponentFamily("family");
+        renderer.setRendererType(rendererType);
+
+        for (List<String> names : attributeNames) {
+            for (String name : names) {
+                AttributeBean attribute = new AttributeBean();
+                attribute.setAttributeName(name);
+                attribute.setAttributeClass("java.lang.String");
+                attribute.setPassThrough(name.startsWith("on") || PASS_THROUGH.contains(name));
+                renderer.addAttribute(attribute);
+            }
+        }
+
+        return renderer;
+    }
+
+    private static FacesConfigBean newFacesConfig(RendererBean... renderers) {
+        RenderKitBean renderKit = new RenderKitBean();
+        renderKit.setRenderKitId("KIT");
+        for (RendererBean renderer : renderers) {
+            renderKit.addRenderer(renderer);
+        }
+
+        FacesConfigBean configBean = new FacesConfigBean();
+        configBean.addRenderKit(renderKit);
+        return configBean;
+    }
+
+    private static List<String> getNames(List<Attribute> attributes) {
+        List<String> names = new ArrayList<>(attributes.size());
+        for (Attribute attribute : attributes) {
+            names.add(attribute.getAttributeName());
+        }
+
+        return names;
+    }
+
+}
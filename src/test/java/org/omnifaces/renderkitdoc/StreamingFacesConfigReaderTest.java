@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018 OmniFaces. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package org.omnifaces.renderkitdoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.omnifaces.facesconfigparser.FacesConfigParser.parseFacesConfig;
+import static org.omnifaces.renderkitdoc.FacesConfigBeans.describe;
+import static org.omnifaces.renderkitdoc.FacesConfigBeans.getSampleFacesConfig;
+import static org.omnifaces.renderkitdoc.FacesConfigBeans.getSchemaDirectory;
+
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.omnifaces.facesconfigparser.digester.beans.FacesConfigBean;
+import org.omnifaces.facesconfigparser.digester.beans.RenderKitBean;
+import org.omnifaces.facesconfigparser.digester.beans.RendererBean;
+
+public class StreamingFacesConfigReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsTheSameRenderKitsAsTheParser() throws Exception {
+        File facesConfig = getSampleFacesConfig(folder.getRoot());
+        FacesConfigBean parsed = parseFacesConfig(facesConfig.getPath(), getSchemaDirectory().getPath());
+
+        for (RenderKitBean parsedRenderKit : parsed.getRenderKits()) {
+            Map<String, String> streamedRenderers = new TreeMap<>();
+            RenderKitBean streamedRenderKit = new StreamingFacesConfigReader(facesConfig, parsedRenderKit.getRenderKitId())
+                .read(renderer -> streamedRenderers.put(getKey(renderer), describe(renderer)));
+
+            Map<String, String> parsedRenderers = new TreeMap<>();
+            for (RendererBean renderer : parsedRenderKit.getRenderers()) {
+                parsedRenderers.put(getKey(renderer), describe(renderer));
+            }
+
+            assertEquals(describe(parsedRenderKit, false), describe(streamedRenderKit, false));
+            assertEquals(parsedRenderers, streamedRenderers);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnUnknownRenderKit() throws Exception {
+        new StreamingFacesConfigReader(getSampleFacesConfig(folder.getRoot()), "UNKNOWN").read(renderer -> {});
+    }
+
+    // The parser lists the renderers by family and type, the reader in the order of the file
+    private static String getKey(RendererBean renderer) {
+        return renderer.getComponentFamily() + '|' + renderer.getRendererType();
+    }
+
+}